@@ -33,7 +33,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 grammar Prolog;
 
 @parser::members {
+// no ',' operator directly in an argument (or list element)
 boolean intermlist = false;
+// no ':-' operator directly in the head of a predicate
+boolean inhead = false;
 }
 
 @lexer::members {
@@ -47,12 +50,15 @@ p_text: (directive | clause) * EOF ;
 directive: ':-' term '.' ; // also 3.58
 
 clause
-    : term ':-' term '.' # predicate
+    : {inhead = true;} term ':-' term '.' # predicate
     | term '.' # fact
     ; // also 3.33
 
 
 // Abstract Syntax (6.3): terms formed from tokens
+//
+// Each operator rule matches its operand and then, optionally, the operator:
+// left-factored like this, SLL prediction is enough to parse valid Prolog.
 
 termlist
     : {intermlist = true;} term {intermlist = false;}
@@ -63,8 +69,9 @@ term: binary1200;
 
 // 1200  xfx  -->, :-
 binary1200
-    : unary1200 (':-' | '-->') unary1200
-    | unary1200
+locals [boolean head]
+@init {$head = inhead; inhead = false;}
+    : unary1200 ({!$head}? ':-' unary1200 | '-->' unary1200)?
     ;
 
 // 1200  fx   :-, ?-
@@ -95,26 +102,24 @@ unary1150
 
 // 1100  xfy  ;, |
 binaryRight1100
-    : <assoc=right> binaryRight1050 ((';' | '|') binaryRight1100)+
-    | binaryRight1050
+    : binaryRight1050 ((';' | '|') binaryRight1100)?
     ;
 
 // 1050  xfy  ->, *->
 binaryRight1050
-    : <assoc=right> binaryRight1000 ('->' | '*->') binaryRight1050
-    | binaryRight1000
+    : binaryRight1000 (('->' | '*->') binaryRight1050)?
     ;
 
 // 1000  xfy  ,
 binaryRight1000
-    : <assoc=right> {!intermlist}? binary990 (',' binaryRight1000)+
-    | binary990
+locals [boolean comma]
+@init {$comma = !intermlist;}
+    : binary990 ({$comma}? ',' binaryRight1000)?
     ;
 
 // 990  xfx  :=
 binary990
-    : unary900 ':=' unary900
-    | unary900
+    : unary900 (':=' unary900)?
     ;
 
 // 900  fy   \+
@@ -127,7 +132,7 @@ unary900
  * is, >:<, :<
  */
 binary700
-    : binaryRight600 (
+    : binaryRight600 ((
             '<'
             | '='
             | '=..'
@@ -149,14 +154,12 @@ binary700
             | 'is'
             | '>:<'
             | ':<'
-            ) binaryRight600
-    | binaryRight600
+            ) binaryRight600)?
     ;
 
 // 600  xfy  :
 binaryRight600
-    : <assoc=right> binaryLeft500 ':' binaryRight600
-    | binaryLeft500
+    : binaryLeft500 (':' binaryRight600)?
     ;
 
 // 500  yfx  +, -, /\, \/, xor
@@ -189,14 +192,12 @@ binaryLeft400
 
 // 200  xfx  **
 binary200
-    : <assoc=right> binaryRight200 '**' binaryRight200
-    | binaryRight200
+    : binaryRight200 ('**' binaryRight200)?
     ;
 
 // 200  xfy  ^
 binaryRight200
-    : <assoc=right> unary200 '^' binaryRight200
-    | unary200
+    : unary200 ('^' binaryRight200)?
     ;
 
 // 200  fy   +, -, \
@@ -213,7 +214,7 @@ unary1
 
 base_term
     : VARIABLE          # variable
-    | '(' term ')'      # braced_term
+    | '(' term ')' # braced_term
     | integer      # integer_term
     | FLOAT        # float
     // structure / compound term
@@ -1,7 +1,6 @@
 package edu.unc.cs.comp524.parsers.prolog;
 
 import java.util.*;
-import java.util.stream.*;
 
 import org.antlr.v4.runtime.*;
 
@@ -10,7 +9,9 @@ import org.antlr.v4.runtime.*;
  */
 public class AComment implements Comment {
 
-  private final String text;
+  // the tokens, until their text is asked for
+  private List<Token> tokens;
+  private volatile String text;
 
   public AComment(final String s) {
     text = s;
@@ -27,17 +28,39 @@ public class AComment implements Comment {
 
   /**
    * Constructor for use with {@link PrologParser}-related objects.
+   * <p>
+   * The text is only read from the tokens (and so from the input) when first
+   * asked for.
    *
    * @param ts Tokens from which to derive {@link #text}
    */
   public AComment(final List<Token> ts) {
-    this(ts.stream()
-        .map(t -> t.getText())
-        .collect(Collectors.joining()));
+    tokens = List.copyOf(ts);
+  }
+
+  /**
+   * The tokens the text is read from, or null once it has been read (or if it
+   * was given as a string)
+   */
+  synchronized List<Token> tokens() {
+    return tokens;
   }
 
   @Override
   public String text() {
+    var text = this.text;
+    if (text == null) {
+      synchronized (this) {
+        if (this.text == null) {
+          var joined = new StringBuilder();
+          for (var t : tokens)
+            joined.append(t.getText());
+          this.text = joined.toString();
+          tokens = null;
+        }
+        text = this.text;
+      }
+    }
     return text;
   }
 
@@ -0,0 +1,60 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * The default concrete {@link Diagnostic} implementation.
+ */
+public class ADiagnostic implements Diagnostic {
+  private final int line;
+  private final int charPositionInLine;
+  private final Optional<String> offendingToken;
+  private final Set<String> expected;
+  private final String message;
+
+  public ADiagnostic(
+      int line,
+      int charPositionInLine,
+      Optional<String> offendingToken,
+      Set<String> expected,
+      String message) {
+    this.line = line;
+    this.charPositionInLine = charPositionInLine;
+    this.offendingToken = offendingToken;
+    this.expected = Collections.unmodifiableSet(expected);
+    this.message = message;
+  }
+
+  @Override
+  public int line() {
+    return line;
+  }
+
+  @Override
+  public int charPositionInLine() {
+    return charPositionInLine;
+  }
+
+  @Override
+  public Optional<String> offendingToken() {
+    return offendingToken;
+  }
+
+  @Override
+  public Set<String> expected() {
+    return expected;
+  }
+
+  @Override
+  public String message() {
+    return message;
+  }
+
+  /**
+   * The error as ANTLR's console listener would print it.
+   */
+  @Override
+  public String toString() {
+    return String.format("line %d:%d %s", line, charPositionInLine, message);
+  }
+}
@@ -4,6 +4,8 @@ import java.util.*;
 
 import org.antlr.v4.runtime.tree.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * The default concrete {@link Fact} implementation.
  */
@@ -30,4 +32,22 @@ public final class AFact extends ARelation implements Fact {
   {
     super(name, args, comment);
   }
+
+  AFact(
+      final String name,
+      final List<ParseTree> args,
+      final TermInterner interner,
+      final Optional<Comment> comment)
+  {
+    super(name, args, interner, comment);
+  }
+
+  public AFact(
+      final String name,
+      final List<ParseTree> args,
+      final List<Term> terms,
+      final Optional<Comment> comment)
+  {
+    super(name, args, terms, comment);
+  }
 }
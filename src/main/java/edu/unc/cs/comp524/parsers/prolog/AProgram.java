@@ -8,15 +8,78 @@ import java.util.stream.*;
  */
 public class AProgram implements Program {
   private final Map<String, List<Relation>> clauses;
+  private final Map<PredicateIndicator, List<Relation>> predicates;
+  private final Memo<SymbolTable> symbols;
+  private final Memo<CallGraph> callGraph =
+    new Memo<>(() -> new CallGraph(this));
+  private final Memo<Recursion> recursion =
+    new Memo<>(() -> new Recursion(callGraph()));
 
   public AProgram(Map<String, List<Relation>> clauses) {
     this.clauses = Collections.unmodifiableMap(clauses);
+    predicates = index(clauses.values());
+    symbols = new Memo<>(() -> symbols(new SymbolTable()));
+  }
+
+  /**
+   * A program whose clauses are already indexed by predicate, as {@link
+   * #predicates} would index them; neither map may change.
+   */
+  AProgram(
+      Map<String, List<Relation>> clauses,
+      Map<PredicateIndicator, List<Relation>> predicates) {
+    this.clauses = Collections.unmodifiableMap(clauses);
+    this.predicates = Collections.unmodifiableMap(predicates);
+    symbols = new Memo<>(() -> symbols(new SymbolTable()));
   }
 
   public AProgram(List<Relation> clauses) {
-    var map = clauses.stream().collect(Collectors.groupingBy(Relation::name));
+    this(clauses, null);
+  }
+
+  /**
+   * A program whose functors get their ids from {@code symbols}, which may be
+   * shared with other programs.
+   */
+  public AProgram(List<Relation> clauses, SymbolTable symbols) {
+    this(clauses, symbols, false);
+  }
+
+  private AProgram(List<Relation> clauses, SymbolTable symbols, boolean full) {
+    // names in order of first appearance
+    var map = clauses.stream().collect(Collectors.groupingBy(
+          Relation::name,
+          LinkedHashMap::new,
+          Collectors.toList()));
     map.replaceAll((name,relations) -> Collections.unmodifiableList(relations));
     this.clauses = Collections.unmodifiableMap(map);
+    predicates = index(map.values());
+    var shared = symbols == null ? new SymbolTable() : symbols;
+    this.symbols = full
+      ? Memo.of(shared)
+      : new Memo<>(() -> symbols(shared));
+  }
+
+  /**
+   * A program whose functors are all in {@code symbols} already, so that
+   * {@link #symbols} need not look at the relations.
+   */
+  static AProgram withSymbols(List<Relation> clauses, SymbolTable symbols) {
+    return new AProgram(clauses, symbols, true);
+  }
+
+  // the relations keyed by predicate indicator, in order of first appearance
+  // in clauses
+  private static Map<PredicateIndicator, List<Relation>> index(
+      Collection<List<Relation>> clauses)
+  {
+    var index = new LinkedHashMap<PredicateIndicator, List<Relation>>();
+    for (var relations : clauses)
+      for (var r : relations)
+        index.computeIfAbsent(PredicateIndicator.of(r), pi -> new ArrayList<>())
+          .add(r);
+    index.replaceAll((pi,relations) -> Collections.unmodifiableList(relations));
+    return Collections.unmodifiableMap(index);
   }
 
   @Override
@@ -24,6 +87,42 @@ public class AProgram implements Program {
     return clauses;
   }
 
+  @Override
+  public Map<PredicateIndicator, List<Relation>> predicates() {
+    return predicates;
+  }
+
+  /**
+   * The table given when the program was made (or else a new one), with the
+   * program's functors added the first time it is asked for.
+   */
+  @Override
+  public SymbolTable symbols() {
+    return symbols.get();
+  }
+
+  /**
+   * The call graph, built the first time it is asked for.
+   */
+  @Override
+  public CallGraph callGraph() {
+    return callGraph.get();
+  }
+
+  /**
+   * The recursion in the call graph, found the first time it is asked for.
+   */
+  @Override
+  public Recursion recursion() {
+    return recursion.get();
+  }
+
+  private SymbolTable symbols(SymbolTable table) {
+    relations().forEach(r -> r.functor(table));
+    Program.invocations(relations()).forEach(ri -> ri.functor(table));
+    return table;
+  }
+
   /**
    * A JSON-like debugging-aid {@link String} representation.
    */
@@ -5,6 +5,8 @@ import java.util.stream.*;
 
 import org.antlr.v4.runtime.tree.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * Abstract super-class that handles most of the {@link Relation} details.
  */
@@ -12,7 +14,29 @@ public abstract class ARelation implements Relation {
 
   private final String name;
   private final List<ParseTree> args;
+  // built from args when first asked for, unless given
+  private volatile List<Term> terms;
+  // where those are made canonical, if anywhere
+  private final TermInterner interner;
   private final Optional<Comment> comment;
+  // where the clause is in its source, if known
+  private volatile SourceText sourceText;
+
+  /**
+   * A functor id, and the table it is from.
+   */
+  private static final class Functor {
+    final SymbolTable symbols;
+    final int id;
+
+    Functor(SymbolTable symbols, int id) {
+      this.symbols = symbols;
+      this.id = id;
+    }
+  }
+
+  // the id in the table last asked about
+  private volatile Functor functor;
 
   /**
    * Constructor for use with {@link PrologParser}-related objects.
@@ -25,18 +49,53 @@ public abstract class ARelation implements Relation {
       final PrologParser.TermlistContext termlist,
       final Optional<Comment> comment)
   {
-    name = atom.getText();
+    // usually a single token
+    name = atom.getStart() == atom.getStop()
+      ? atom.getStart().getText()
+      : atom.getText();
     args = Collections.unmodifiableList(termlist.term());
+    interner = null;
+    this.comment = comment;
+  }
+
+  public ARelation(
+      final String name,
+      final List<ParseTree> args,
+      final Optional<Comment> comment)
+  {
+    this(name, args, (TermInterner)null, comment);
+  }
+
+  /**
+   * Constructor for arguments whose {@link Term}s are made canonical in
+   * {@code interner} when first asked for.
+   */
+  ARelation(
+      final String name,
+      final List<ParseTree> args,
+      final TermInterner interner,
+      final Optional<Comment> comment)
+  {
+    this.name = name;
+    this.args = Collections.unmodifiableList(args);
+    this.interner = interner;
     this.comment = comment;
   }
 
+  /**
+   * Constructor for arguments whose {@link Term}s are already known (or which
+   * are no longer parse-trees they can be built from).
+   */
   public ARelation(
       final String name,
       final List<ParseTree> args,
+      final List<Term> terms,
       final Optional<Comment> comment)
   {
     this.name = name;
     this.args = Collections.unmodifiableList(args);
+    this.terms = List.copyOf(terms);
+    interner = null;
     this.comment = comment;
   }
 
@@ -51,11 +110,46 @@ public abstract class ARelation implements Relation {
     return args;
   }
 
+  @Override
+  public List<Term> terms() {
+    var terms = this.terms;
+    if (terms == null) {
+      // building twice in a race is harmless
+      terms = TermBuilder.terms(args);
+      if (interner != null) terms = interner.intern(terms);
+      this.terms = terms = List.copyOf(terms);
+    }
+    return terms;
+  }
+
   @Override
   public int arity() {
     return args().size();
   }
 
+  @Override
+  public int functor(SymbolTable symbols) {
+    var functor = this.functor;
+    if (functor == null || functor.symbols != symbols) {
+      functor = new Functor(symbols, symbols.functor(name, arity()));
+      this.functor = functor;
+    }
+    return functor.id;
+  }
+
+  @Override
+  public CharSequence sourceText() {
+    var sourceText = this.sourceText;
+    return sourceText != null ? sourceText : Relation.super.sourceText();
+  }
+
+  /**
+   * Records where the clause is in its source.
+   */
+  void setSourceText(SourceText sourceText) {
+    this.sourceText = sourceText;
+  }
+
   @Override
   public Optional<Comment> comment() {
     return comment;
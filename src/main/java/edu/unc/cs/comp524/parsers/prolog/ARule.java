@@ -1,15 +1,20 @@
 package edu.unc.cs.comp524.parsers.prolog;
 
 import java.util.*;
+import java.util.function.*;
 import java.util.stream.*;
 
 import org.antlr.v4.runtime.tree.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * The default concrete {@link Rule} implementation.
  */
 public final class ARule extends ARelation implements Rule {
-  private final List<RuleInvocation> rhs;
+  private volatile List<RuleInvocation> rhs;
+  // computes rhs on first use, then is dropped
+  private Supplier<List<RuleInvocation>> pending;
 
   /**
    * Constructor for use with {@link PrologParser}-related objects.
@@ -37,8 +42,54 @@ public final class ARule extends ARelation implements Rule {
     this.rhs = Collections.unmodifiableList(rhs);
   }
 
+  ARule(
+      final String name,
+      final List<ParseTree> args,
+      final TermInterner interner,
+      final Optional<Comment> comment,
+      final List<RuleInvocation> rhs)
+  {
+    super(name, args, interner, comment);
+    this.rhs = Collections.unmodifiableList(rhs);
+  }
+
+  public ARule(
+      final String name,
+      final List<ParseTree> args,
+      final List<Term> terms,
+      final Optional<Comment> comment,
+      final List<RuleInvocation> rhs)
+  {
+    super(name, args, terms, comment);
+    this.rhs = Collections.unmodifiableList(rhs);
+  }
+
+  /**
+   * A rule whose {@link #rhs} is computed the first time it is asked for.
+   */
+  public ARule(
+      final String name,
+      final List<ParseTree> args,
+      final List<Term> terms,
+      final Optional<Comment> comment,
+      final Supplier<List<RuleInvocation>> rhs)
+  {
+    super(name, args, terms, comment);
+    pending = rhs;
+  }
+
   @Override
   public List<RuleInvocation> rhs() {
+    var rhs = this.rhs;
+    if (rhs == null) {
+      synchronized (this) {
+        if (this.rhs == null) {
+          this.rhs = Collections.unmodifiableList(pending.get());
+          pending = null;
+        }
+        rhs = this.rhs;
+      }
+    }
     return rhs;
   }
 
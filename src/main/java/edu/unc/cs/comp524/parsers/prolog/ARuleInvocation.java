@@ -5,11 +5,15 @@ import java.util.stream.*;
 
 import org.antlr.v4.runtime.tree.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * The default concrete {@link RuleInvocation} implementation.
  */
 public class ARuleInvocation implements RuleInvocation {
   private final Fact fact;
+  // where the invocation is in its source, if known
+  private volatile SourceText sourceText;
 
   /**
    * Constructor for use with {@link PrologParser}-related objects.
@@ -31,6 +35,14 @@ public class ARuleInvocation implements RuleInvocation {
     fact = new AFact(name, args, Optional.empty());
   }
 
+  public ARuleInvocation(
+      final String name,
+      final List<ParseTree> args,
+      final List<Term> terms)
+  {
+    fact = new AFact(name, args, terms, Optional.empty());
+  }
+
   public ARuleInvocation(Fact f) {
     fact = f;
   }
@@ -45,11 +57,34 @@ public class ARuleInvocation implements RuleInvocation {
     return fact.args();
   }
 
+  @Override
+  public List<Term> terms(){
+    return fact.terms();
+  }
+
   @Override
   public int arity(){
     return fact.arity();
   }
 
+  @Override
+  public int functor(SymbolTable symbols){
+    return fact.functor(symbols);
+  }
+
+  @Override
+  public CharSequence sourceText(){
+    var sourceText = this.sourceText;
+    return sourceText != null ? sourceText : RuleInvocation.super.sourceText();
+  }
+
+  /**
+   * Records where the invocation is in its source.
+   */
+  void setSourceText(SourceText sourceText){
+    this.sourceText = sourceText;
+  }
+
   @Override
   public boolean isInvocationOf(Relation r){
     return name() != null
@@ -0,0 +1,143 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * A {@link Program} that works out each of its analyses once.
+ * <p>
+ * Wraps another program, whose clauses must not change, and answers as the
+ * default {@link Program} methods would. The indices they share---the
+ * predicates, symbols, call graph, recursion, undefined invocations, depths
+ * and magic numbers---are computed the first time they are needed and kept,
+ * so that many checks over one program cost little more than one.
+ * <p>
+ * All methods are safe to call from any thread; each index is computed only
+ * once, and safely published.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * Program program = new AnalyzedProgram(Programs.parse(path));
+ * for (String name : names)
+ *   ... program.isRecursive(name) ... program.depth(name) ...
+ * }</pre>
+ */
+public final class AnalyzedProgram implements Program {
+  private final Program program;
+
+  private final Memo<Map<PredicateIndicator, List<Relation>>> predicates;
+  private final Memo<SymbolTable> symbols;
+  private final Memo<CallGraph> callGraph;
+  private final Memo<Recursion> recursion;
+  private final Memo<List<RuleInvocation>> undefined;
+  private final Memo<Map<PredicateIndicator, Integer>> undefinedFunctors;
+  private final Memo<Map<String, Integer>> depths;
+  private final Memo<List<MagicNumber>> magicNumbers;
+  // names whose clauses call themselves, and those that call such names
+  private final Memo<Set<String>> recursive;
+  private final Memo<Set<String>> containsRecursive;
+
+  public AnalyzedProgram(Program program) {
+    this.program = program;
+    predicates = new Memo<>(() ->
+        Collections.unmodifiableMap(program.predicates()));
+    symbols = new Memo<>(program::symbols);
+    callGraph = new Memo<>(program::callGraph);
+    recursion = new Memo<>(program::recursion);
+    undefined = new Memo<>(() ->
+        Collections.unmodifiableList(Program.super.undefined()));
+    undefinedFunctors = new Memo<>(() ->
+        Collections.unmodifiableMap(Program.super.undefinedFunctors()));
+    depths = new Memo<>(() ->
+        Collections.unmodifiableMap(Program.super.depthAll()));
+    magicNumbers = new Memo<>(() ->
+        Collections.unmodifiableList(Program.super.magicNumbers()));
+    recursive = new Memo<>(this::findRecursive);
+    containsRecursive = new Memo<>(this::findContainsRecursive);
+  }
+
+  /**
+   * The program analyzed.
+   */
+  public Program program() {
+    return program;
+  }
+
+  @Override
+  public Map<String, List<Relation>> clauses() {
+    return program.clauses();
+  }
+
+  @Override
+  public Map<PredicateIndicator, List<Relation>> predicates() {
+    return predicates.get();
+  }
+
+  @Override
+  public SymbolTable symbols() {
+    return symbols.get();
+  }
+
+  @Override
+  public CallGraph callGraph() {
+    return callGraph.get();
+  }
+
+  @Override
+  public Recursion recursion() {
+    return recursion.get();
+  }
+
+  @Override
+  public boolean isRecursive(String name) {
+    return recursive.get().contains(name);
+  }
+
+  @Override
+  public boolean containsRecursive(String name) {
+    return containsRecursive.get().contains(name);
+  }
+
+  @Override
+  public List<RuleInvocation> undefined() {
+    return undefined.get();
+  }
+
+  @Override
+  public Map<PredicateIndicator, Integer> undefinedFunctors() {
+    return undefinedFunctors.get();
+  }
+
+  @Override
+  public Map<String, Integer> depthAll() {
+    return depths.get();
+  }
+
+  @Override
+  public List<MagicNumber> magicNumbers() {
+    return magicNumbers.get();
+  }
+
+  @Override
+  public String toString() {
+    return program.toString();
+  }
+
+  private Set<String> findRecursive() {
+    var names = new HashSet<String>();
+    Program.rules(relations()).forEach(r -> {
+      for (var ri : r.rhs())
+        if (ri.isInvocationOf(r)) names.add(r.name());
+    });
+    return names;
+  }
+
+  private Set<String> findContainsRecursive() {
+    var recursive = this.recursive.get();
+    var names = new HashSet<String>();
+    Program.rules(relations()).forEach(r -> {
+      for (var ri : r.rhs())
+        if (recursive.contains(ri.name())) names.add(r.name());
+    });
+    return names;
+  }
+}
@@ -0,0 +1,187 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * The calls between the predicates of a {@link Program}.
+ * <p>
+ * Nodes are functor ids in the program's {@link SymbolTable} (whether or not
+ * the functor has clauses), and each call site---a {@link RuleInvocation} in
+ * the {@link Rule#rhs} of a clause---is an edge from the clause's functor to
+ * the invoked one. Edges are numbered from 0; edge ids are grouped by caller,
+ * in program order within each caller.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * for (int i = 0; i < graph.fanOut(f); ++i) {
+ *   int e = graph.outEdge(f, i);
+ *   ... graph.target(e) ... graph.site(e) ...
+ * }
+ * }</pre>
+ * <p>
+ * Implementation notes
+ * <p>
+ * Both directions are stored as compressed sparse rows: the out-edges of
+ * {@code f} are {@code outStart[f]} to {@code outStart[f + 1]}, and the
+ * in-edges are listed (as edge ids) in {@code inEdges} from {@code inStart[f]}
+ * to {@code inStart[f + 1]}.
+ */
+public final class CallGraph {
+  private final SymbolTable symbols;
+  private final int nodes;
+  private final boolean[] defined;
+
+  private final int[] outStart;
+  private final int[] sources;
+  private final int[] targets;
+  private final Rule[] clauses;
+  private final RuleInvocation[] sites;
+
+  private final int[] inStart;
+  private final int[] inEdges;
+
+  public CallGraph(Program program) {
+    symbols = program.symbols();
+    var rules = new ArrayList<Rule>();
+    program.relations().forEach(r -> {
+      r.functor(symbols);
+      if (r instanceof Rule) rules.add((Rule)r);
+    });
+
+    // number every functor before sizing the arrays
+    int edges = 0;
+    for (var rule : rules)
+      for (var ri : rule.rhs()) {
+        ri.functor(symbols);
+        ++edges;
+      }
+    nodes = symbols.functors();
+
+    defined = new boolean[nodes];
+    program.relations().forEach(r -> defined[r.functor(symbols)] = true);
+
+    // counting sort of the call sites by caller
+    outStart = new int[nodes + 1];
+    for (var rule : rules)
+      outStart[rule.functor(symbols) + 1] += rule.rhs().size();
+    for (int f = 0; f < nodes; ++f)
+      outStart[f + 1] += outStart[f];
+
+    sources = new int[edges];
+    targets = new int[edges];
+    clauses = new Rule[edges];
+    sites = new RuleInvocation[edges];
+    var next = Arrays.copyOf(outStart, nodes);
+    for (var rule : rules) {
+      int f = rule.functor(symbols);
+      for (var ri : rule.rhs()) {
+        int e = next[f]++;
+        sources[e] = f;
+        targets[e] = ri.functor(symbols);
+        clauses[e] = rule;
+        sites[e] = ri;
+      }
+    }
+
+    inStart = new int[nodes + 1];
+    for (int e = 0; e < edges; ++e)
+      ++inStart[targets[e] + 1];
+    for (int f = 0; f < nodes; ++f)
+      inStart[f + 1] += inStart[f];
+    inEdges = new int[edges];
+    next = Arrays.copyOf(inStart, nodes);
+    for (int e = 0; e < edges; ++e)
+      inEdges[next[targets[e]]++] = e;
+  }
+
+  /**
+   * The table the node ids are from.
+   */
+  public SymbolTable symbols() {
+    return symbols;
+  }
+
+  /**
+   * The number of nodes; functors added to the table later have ids at least
+   * this, and no edges.
+   */
+  public int nodes() {
+    return nodes;
+  }
+
+  /**
+   * The number of edges (call sites).
+   */
+  public int edges() {
+    return sources.length;
+  }
+
+  /**
+   * True iff functor {@code f} has clauses in the program.
+   */
+  public boolean isDefined(int f) {
+    return f >= 0 && f < nodes && defined[f];
+  }
+
+  /**
+   * The number of call sites in the clauses of {@code f}.
+   */
+  public int fanOut(int f) {
+    return f >= 0 && f < nodes ? outStart[f + 1] - outStart[f] : 0;
+  }
+
+  /**
+   * The number of call sites invoking {@code f}.
+   */
+  public int fanIn(int f) {
+    return f >= 0 && f < nodes ? inStart[f + 1] - inStart[f] : 0;
+  }
+
+  /**
+   * The {@code i}th edge out of {@code f}.
+   */
+  public int outEdge(int f, int i) {
+    if (i < 0 || i >= fanOut(f))
+      throw new IndexOutOfBoundsException(
+          String.format("out-edge %d of %d", i, f));
+    return outStart[f] + i;
+  }
+
+  /**
+   * The {@code i}th edge into {@code f}.
+   */
+  public int inEdge(int f, int i) {
+    if (i < 0 || i >= fanIn(f))
+      throw new IndexOutOfBoundsException(
+          String.format("in-edge %d of %d", i, f));
+    return inEdges[inStart[f] + i];
+  }
+
+  /**
+   * The calling functor of edge {@code e}.
+   */
+  public int source(int e) {
+    return sources[e];
+  }
+
+  /**
+   * The called functor of edge {@code e}.
+   */
+  public int target(int e) {
+    return targets[e];
+  }
+
+  /**
+   * The clause containing the call site of edge {@code e}.
+   */
+  public Rule clause(int e) {
+    return clauses[e];
+  }
+
+  /**
+   * The call site of edge {@code e}.
+   */
+  public RuleInvocation site(int e) {
+    return sites[e];
+  }
+}
@@ -0,0 +1,165 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.runtime.tree.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
+/**
+ * Parses Prolog text one clause (or directive) at a time.
+ * <p>
+ * The lexer reads from an {@link UnbufferedCharStream}, and each clause's
+ * tokens---up to and including its terminating {@code '.'}, together with any
+ * comments before it---are parsed on their own and then dropped. Memory use is
+ * therefore bounded by the largest clause, not by the size of the input.
+ * <p>
+ * Implementation notes
+ * <p>
+ * The {@code '.'} token only ever ends a clause (numbers and quoted atoms
+ * containing dots are single tokens), so the token stream can be split into
+ * clauses without parsing it. A clause with a syntax error only affects that
+ * clause, and is not reported.
+ *
+ * @see Programs#stream
+ */
+final class ClauseParser {
+  private static final int END =
+    new PrologParser(null).getTokenTypeMap().get("'.'");
+
+  private final PrologLexer lexer;
+  private final PrologParser parser;
+  private final Consumer<? super Relation> sink;
+  private TermInterner interner = null;
+
+  private boolean done = false;
+
+  /**
+   * Makes tokens that copy their text and keep no reference to the lexer or its
+   * input, so the input can be collected while the {@link Relation}s live on.
+   */
+  private static final class DetachedTokenFactory
+    implements TokenFactory<CommonToken> {
+    // a source with no input, for error recovery to build tokens from
+    private static final Pair<TokenSource, CharStream> source =
+      new Pair<>(new ListTokenSource(List.of()), null);
+
+    @Override
+    public CommonToken create(
+        Pair<TokenSource, CharStream> from,
+        int type,
+        String text,
+        int channel,
+        int start,
+        int stop,
+        int line,
+        int charPositionInLine) {
+      var t = new CommonToken(source, type, channel, start, stop);
+      t.setLine(line);
+      t.setCharPositionInLine(charPositionInLine);
+      if (text == null)
+        text = type == Token.EOF
+          ? "<EOF>"
+          : from.b.getText(Interval.of(start, stop));
+      t.setText(text);
+      return t;
+    }
+
+    @Override
+    public CommonToken create(int type, String text) {
+      return new CommonToken(type, text);
+    }
+  }
+
+  ClauseParser(Reader input, Consumer<? super Relation> sink) {
+    this(new UnbufferedCharStream(input), sink);
+    // the characters are gone once the lexer moves on
+    lexer.setTokenFactory(new CommonTokenFactory(true));
+  }
+
+  ClauseParser(CharStream input, Consumer<? super Relation> sink) {
+    lexer = new PrologLexer(input);
+    parser = new PrologParser(null);
+    // a clause with an error is skipped, not reported
+    lexer.removeErrorListeners();
+    parser.removeErrorListeners();
+    this.sink = sink;
+  }
+
+  /**
+   * Builds tokens that do not refer back to the input.
+   */
+  void detach() {
+    lexer.setTokenFactory(new DetachedTokenFactory());
+  }
+
+  /**
+   * Hash-conses the terms of the relations in {@code interner}.
+   *
+   * @see RelationCollectorListener#setTermInterner
+   */
+  void intern(TermInterner interner) {
+    this.interner = interner;
+  }
+
+  /**
+   * Continues from char {@code index} of the input, which is at {@code line}
+   * and {@code charPositionInLine}; the input must support seeking there.
+   */
+  void seek(int index, int line, int charPositionInLine) {
+    lexer.getInputStream().seek(index);
+    lexer.setLine(line);
+    lexer.setCharPositionInLine(charPositionInLine);
+    done = false;
+  }
+
+  /**
+   * The line of the next char of input.
+   */
+  int line() {
+    return lexer.getLine();
+  }
+
+  /**
+   * The position in its line of the next char of input.
+   */
+  int charPositionInLine() {
+    return lexer.getCharPositionInLine();
+  }
+
+  /**
+   * Whether the input is exhausted.
+   */
+  boolean done() {
+    return done;
+  }
+
+  /**
+   * Parses the next clause, handing its {@link Relation} (if any) to the sink.
+   *
+   * @return false iff the input is exhausted
+   */
+  boolean next() {
+    if (done) return false;
+
+    var clause = new ArrayList<Token>();
+    Token t;
+    do {
+      t = lexer.nextToken();
+      clause.add(t);
+    } while (t.getType() != END && t.getType() != Token.EOF);
+    done = t.getType() == Token.EOF;
+
+    var tokens = new CommonTokenStream(new ListTokenSource(clause));
+    parser.setTokenStream(tokens);
+    var tree = Programs.p_text(parser);
+    var collector = new RelationCollectorListener(tokens, parser, sink);
+    collector.setTermInterner(interner);
+    ParseTreeWalker.DEFAULT.walk(collector, tree);
+    return true;
+  }
+}
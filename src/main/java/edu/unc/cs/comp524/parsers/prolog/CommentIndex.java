@@ -0,0 +1,86 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+ * The comments attached to the clauses of a token stream: those ending on the
+ * line just before a clause starts, as {@link
+ * PrologListenerWithTokens#areTokensOnNode} decides.
+ * <p>
+ * Implementation notes
+ * <p>
+ * One pass over the tokens records, for each on-channel token with comments
+ * directly before it, the span of those comments; lookups binary-search these
+ * (sorted) token indices. Rather than counting the lines in the last comment,
+ * only the few chars between its end and the clause are read, and the clause
+ * is on the next line iff they hold exactly one newline.
+ */
+final class CommentIndex {
+  private final List<Token> tokens;
+  // token index of an on-channel token, and the comments just before it
+  private int[] at = new int[16];
+  private int[] from = new int[16];
+  private int[] to = new int[16];
+  private int spans = 0;
+
+  /**
+   * An index of the tokens of {@code stream}, which is filled first.
+   */
+  CommentIndex(BufferedTokenStream stream) {
+    stream.fill();
+    tokens = stream.getTokens();
+    int first = -1;
+    for (int i = 0; i < tokens.size(); ++i) {
+      int channel = tokens.get(i).getChannel();
+      if (channel == Lexer.DEFAULT_TOKEN_CHANNEL) {
+        if (first >= 0) add(i, first);
+        first = -1;
+      } else if (channel == PrologLexer.COMMENTCH && first < 0) {
+        first = i;
+      }
+    }
+  }
+
+  private void add(int token, int first) {
+    if (spans == at.length) {
+      at = Arrays.copyOf(at, spans * 2);
+      from = Arrays.copyOf(from, spans * 2);
+      to = Arrays.copyOf(to, spans * 2);
+    }
+    at[spans] = token;
+    from[spans] = first;
+    to[spans] = token - 1;
+    ++spans;
+  }
+
+  /**
+   * The comment attached to the clause {@code ctx}, if any.
+   */
+  Optional<Comment> comment(ParserRuleContext ctx) {
+    var start = ctx.getStart();
+    int k = Arrays.binarySearch(at, 0, spans, start.getTokenIndex());
+    if (k < 0) return Optional.empty();
+
+    var last = tokens.get(to[k]);
+    if (!isLineBefore(last, start)) return Optional.empty();
+    return Optional.of(new AComment(tokens.subList(from[k], to[k] + 1)));
+  }
+
+  private static boolean isLineBefore(Token comment, Token next) {
+    var input = comment.getInputStream();
+    if (input == null || input instanceof UnbufferedCharStream)
+      // the text is all there is
+      return next.getLine()
+        == comment.getLine() + ParserUtils.countLines(comment) + 1;
+
+    var gap = input.getText(
+        Interval.of(comment.getStopIndex(), next.getStartIndex() - 1));
+    int newlines = 0;
+    for (int i = 0; i < gap.length(); ++i)
+      if (gap.charAt(i) == '\n') ++newlines;
+    return newlines == 1;
+  }
+}
@@ -0,0 +1,141 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * The strongly-connected components of a directed graph, found by Tarjan's
+ * algorithm.
+ * <p>
+ * The graph's nodes are {@code 0} to {@code nodes - 1}, and its edges are in
+ * compressed sparse rows: the successors of {@code v} are {@code
+ * targets[start[v]]} to {@code targets[start[v + 1] - 1]}. Components are
+ * numbered in the order Tarjan's algorithm completes them, which is a reverse
+ * topological order: every edge between two components goes to the one with
+ * the smaller number.
+ * <p>
+ * Implementation notes
+ * <p>
+ * The depth-first search keeps its own stack, so deep graphs (long chains of
+ * calls) cannot overflow the thread's.
+ */
+final class Components {
+  private final int[] component;
+  private final int count;
+  // the members of component c are members[memberStart[c]] onwards
+  private final int[] memberStart;
+  private final int[] members;
+  private final boolean[] cyclic;
+
+  Components(int nodes, int[] start, int[] targets) {
+    component = new int[nodes];
+    Arrays.fill(component, -1);
+    var index = new int[nodes];
+    Arrays.fill(index, -1);
+    var low = new int[nodes];
+    var onStack = new boolean[nodes];
+    var stack = new int[nodes];
+    int top = 0;
+    // the search: a node, and how many of its edges have been followed
+    var path = new int[nodes];
+    var next = new int[nodes];
+    int depth = 0;
+    int visited = 0;
+    int found = 0;
+
+    var order = new int[nodes];
+    int ordered = 0;
+    var firstMember = new int[nodes + 1];
+    var selfLoop = new boolean[nodes];
+
+    for (int root = 0; root < nodes; ++root) {
+      if (index[root] >= 0) continue;
+      path[0] = root;
+      next[0] = start[root];
+      index[root] = low[root] = visited++;
+      stack[top++] = root;
+      onStack[root] = true;
+      depth = 1;
+
+      while (depth > 0) {
+        int v = path[depth - 1];
+        if (next[depth - 1] < start[v + 1]) {
+          int w = targets[next[depth - 1]++];
+          if (w == v) selfLoop[v] = true;
+          if (index[w] < 0) {
+            index[w] = low[w] = visited++;
+            stack[top++] = w;
+            onStack[w] = true;
+            path[depth] = w;
+            next[depth] = start[w];
+            ++depth;
+          } else if (onStack[w]) {
+            low[v] = Math.min(low[v], index[w]);
+          }
+          continue;
+        }
+
+        // v is done
+        --depth;
+        if (depth > 0) {
+          int u = path[depth - 1];
+          low[u] = Math.min(low[u], low[v]);
+        }
+        if (low[v] == index[v]) {
+          firstMember[found] = ordered;
+          int w;
+          do {
+            w = stack[--top];
+            onStack[w] = false;
+            component[w] = found;
+            order[ordered++] = w;
+          } while (w != v);
+          ++found;
+        }
+      }
+    }
+
+    count = found;
+    firstMember[count] = ordered;
+    memberStart = Arrays.copyOf(firstMember, count + 1);
+    members = order;
+    cyclic = new boolean[count];
+    for (int c = 0; c < count; ++c)
+      cyclic[c] = size(c) > 1 || selfLoop[members[memberStart[c]]];
+  }
+
+  /**
+   * The number of components.
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * The component of node {@code v}.
+   */
+  int component(int v) {
+    return component[v];
+  }
+
+  /**
+   * The number of nodes in component {@code c}.
+   */
+  int size(int c) {
+    return memberStart[c + 1] - memberStart[c];
+  }
+
+  /**
+   * The {@code i}th node of component {@code c}.
+   */
+  int member(int c, int i) {
+    return members[memberStart[c] + i];
+  }
+
+  /**
+   * True iff component {@code c} has a cycle: more than one node, or a node
+   * with an edge to itself.
+   */
+  boolean isCyclic(int c) {
+    return cyclic[c];
+  }
+}
@@ -0,0 +1,101 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * The default {@link Program#depth}s, as longest paths in the condensation of
+ * the graph of names.
+ * <p>
+ * The graph has a node for each name a program defines or invokes, and an edge
+ * from each name to the names invoked by its rules. Names with undefined
+ * invocations are leaves of depth 1. The strongly-connected components of the
+ * graph form a DAG, whose longest paths are found in one pass over the
+ * components in reverse topological order, each visited once.
+ * <p>
+ * Without cycles this is exactly the depth {@link Program#depth} describes. A
+ * cycle is counted as a path through each of its names once; the clauses of a
+ * cycle all have the same depth, that of the longest way through and out of
+ * it.
+ */
+final class Depths {
+  private Depths() {}
+
+  /**
+   * The depth of every name {@code program} defines or invokes.
+   */
+  static Map<String, Integer> of(Program program) {
+    var clauses = program.clauses();
+    var undefined = new HashSet<String>();
+    for (var ri : program.undefined())
+      undefined.add(ri.name());
+
+    var ids = new LinkedHashMap<String, Integer>();
+    for (var name : clauses.keySet())
+      ids.putIfAbsent(name, ids.size());
+    Program.invocations(program.relations())
+      .map(RuleInvocation::name)
+      .filter(Objects::nonNull)
+      .forEach(name -> ids.putIfAbsent(name, ids.size()));
+
+    int nodes = ids.size();
+    var names = ids.keySet().toArray(new String[nodes]);
+    var hasRules = new boolean[nodes];
+    var callsUnnamed = new boolean[nodes];
+    var callees = new ArrayList<List<Integer>>(nodes);
+    int edges = 0;
+    for (int v = 0; v < nodes; ++v) {
+      var out = new ArrayList<Integer>();
+      callees.add(out);
+      // an undefined name bottoms out, whatever it has clauses for
+      if (undefined.contains(names[v])) continue;
+      for (var r : clauses.getOrDefault(names[v], List.of())) {
+        if (!(r instanceof Rule)) continue;
+        hasRules[v] = true;
+        for (var ri : ((Rule)r).rhs()) {
+          if (ri.name() == null) callsUnnamed[v] = true;
+          else out.add(ids.get(ri.name()));
+        }
+      }
+      edges += out.size();
+    }
+
+    var start = new int[nodes + 1];
+    var targets = new int[edges];
+    for (int v = 0; v < nodes; ++v) {
+      start[v + 1] = start[v];
+      for (var w : callees.get(v))
+        targets[start[v + 1]++] = w;
+    }
+
+    var components = new Components(nodes, start, targets);
+    var depth = new int[components.count()];
+    // callees' components come first
+    for (int c = 0; c < components.count(); ++c) {
+      int size = components.size(c);
+      int first = components.member(c, 0);
+      if (size == 1 && undefined.contains(names[first])) {
+        depth[c] = 1;
+        continue;
+      }
+
+      int out = 0;
+      boolean rules = false;
+      for (int i = 0; i < size; ++i) {
+        int v = components.member(c, i);
+        rules |= hasRules[v];
+        if (callsUnnamed[v]) out = Math.max(out, 1);
+        for (int e = start[v]; e < start[v + 1]; ++e) {
+          int d = components.component(targets[e]);
+          if (d != c) out = Math.max(out, depth[d]);
+        }
+      }
+      if (components.isCyclic(c)) depth[c] = size + out;
+      else depth[c] = rules ? 1 + out : 0;
+    }
+
+    var depths = new LinkedHashMap<String, Integer>();
+    for (int v = 0; v < nodes; ++v)
+      depths.put(names[v], depth[components.component(v)]);
+    return depths;
+  }
+}
@@ -0,0 +1,156 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
+/**
+ * Copies of terms and invocations that do not refer to their parse-tree.
+ *
+ * @see TreeRetention
+ */
+final class Detached {
+  private Detached() {}
+
+  /**
+   * A lone {@link TerminalNode} with the text and starting position of {@code
+   * term}, and the type of its token if it is only one token (otherwise
+   * {@link Token#INVALID_TYPE}).
+   */
+  static ParseTree term(ParseTree term) {
+    var start = start(term);
+    return leaf(
+        type(term),
+        term.getText(),
+        start.getLine(),
+        start.getCharPositionInLine());
+  }
+
+  static List<ParseTree> terms(List<? extends ParseTree> terms) {
+    var copies = new ArrayList<ParseTree>(terms.size());
+    for (var term : terms)
+      copies.add(term(term));
+    return copies;
+  }
+
+  /**
+   * The {@link #term}s of {@code args}, kept as their {@link Term}s ({@code
+   * terms}, which should be interned) and the position of each, and made again
+   * when asked for.
+   */
+  static List<ParseTree> args(
+      List<? extends ParseTree> args,
+      List<Term> terms)
+  {
+    String[] texts = null;
+    var tokens = new int[3 * args.size()];
+    for (int i = 0; i < args.size(); ++i) {
+      var arg = args.get(i);
+      var start = start(arg);
+      tokens[3 * i] = type(arg);
+      tokens[3 * i + 1] = start.getLine();
+      tokens[3 * i + 2] = start.getCharPositionInLine();
+      // usually the term prints as it was written
+      var text = arg.getText();
+      if (!text.equals(terms.get(i).toString())) {
+        if (texts == null) texts = new String[args.size()];
+        texts[i] = text;
+      }
+    }
+    return new Args(terms, texts, tokens);
+  }
+
+  private static final class Args
+    extends AbstractList<ParseTree>
+    implements RandomAccess
+  {
+    private final List<Term> terms;
+    // null, or the text of each argument that does not print as its term
+    private final String[] texts;
+    // the type, line and column of each argument
+    private final int[] tokens;
+
+    Args(List<Term> terms, String[] texts, int[] tokens) {
+      this.terms = terms;
+      this.texts = texts;
+      this.tokens = tokens;
+    }
+
+    @Override
+    public ParseTree get(int i) {
+      var term = terms.get(i);
+      return leaf(
+          tokens[3 * i],
+          texts != null && texts[i] != null ? texts[i] : term.toString(),
+          tokens[3 * i + 1],
+          tokens[3 * i + 2]);
+    }
+
+    @Override
+    public int size() {
+      return terms.size();
+    }
+  }
+
+  private static Token start(ParseTree term) {
+    return term instanceof TerminalNode
+      ? ((TerminalNode)term).getSymbol()
+      : ((ParserRuleContext)term).getStart();
+  }
+
+  private static int type(ParseTree term) {
+    if (term instanceof TerminalNode)
+      return ((TerminalNode)term).getSymbol().getType();
+    var ctx = (ParserRuleContext)term;
+    return ctx.getStart() == ctx.getStop()
+      ? ctx.getStart().getType()
+      : Token.INVALID_TYPE;
+  }
+
+  private static TerminalNode leaf(
+      int type, String text, int line, int column)
+  {
+    var token = new CommonToken(type, text);
+    token.setLine(line);
+    token.setCharPositionInLine(column);
+    return new TerminalNodeImpl(token);
+  }
+
+  /**
+   * Copies of {@code invocations}, with their terms interned in {@code
+   * interner} unless it is null (and then only those terms and the
+   * positions of their {@link #args} kept).
+   */
+  static List<RuleInvocation> invocations(
+      List<RuleInvocation> invocations,
+      TermInterner interner)
+  {
+    // nested invocations share arguments, so share the building of their terms
+    var builder = new TermBuilder();
+    var copies = new ArrayList<RuleInvocation>(invocations.size());
+    for (var invocation : invocations) {
+      var terms = builder.build(invocation.args());
+      ARuleInvocation copy;
+      if (interner == null) {
+        copy = new ARuleInvocation(
+            invocation.name(),
+            terms(invocation.args()),
+            terms);
+      } else {
+        terms = List.copyOf(interner.intern(terms));
+        copy = new ARuleInvocation(
+            invocation.name(),
+            args(invocation.args(), terms),
+            terms);
+      }
+      // copied, so as not to keep the input alive either
+      if (invocation.sourceText() instanceof SourceText)
+        copy.setSourceText(((SourceText)invocation.sourceText()).detach());
+      copies.add(copy);
+    }
+    return copies;
+  }
+}
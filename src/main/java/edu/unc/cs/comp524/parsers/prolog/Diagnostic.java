@@ -0,0 +1,36 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * A syntax error found while lexing or parsing.
+ */
+public interface Diagnostic {
+
+  /**
+   * The line of the error (starting from 1)
+   */
+  public int line();
+
+  /**
+   * The position of the error in its line (starting from 0)
+   */
+  public int charPositionInLine();
+
+  /**
+   * The text of the token the parser could not accept (empty for lexer
+   * errors, which have no token)
+   */
+  public Optional<String> offendingToken();
+
+  /**
+   * The display names of the tokens the parser would have accepted instead
+   * (empty if not known)
+   */
+  public Set<String> expected();
+
+  /**
+   * A human-readable description of the error
+   */
+  public String message();
+}
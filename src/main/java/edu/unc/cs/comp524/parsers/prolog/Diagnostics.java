@@ -0,0 +1,93 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+ * The syntax errors in an input, collected by listening to its lexer and
+ * parser in place of the {@link ConsoleErrorListener}.
+ * <p>
+ * Once the {@link ErrorPolicy}'s limit is reached, the listener stops the
+ * lexer or parser reporting to it by throwing {@link GaveUp}, which {@link
+ * Programs#parse(CharStream, Diagnostics)} catches.
+ */
+public final class Diagnostics extends BaseErrorListener {
+  /**
+   * Thrown from a lexer or parser when its input has too many errors.
+   */
+  static final class GaveUp extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    GaveUp() {
+      // only ever caught, so there is no point filling in a stack trace
+      super(null, null, false, false);
+    }
+  }
+
+  private final ErrorPolicy policy;
+  private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+  public Diagnostics(ErrorPolicy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * The errors, in the order they were found.
+   */
+  public List<Diagnostic> list() {
+    return Collections.unmodifiableList(diagnostics);
+  }
+
+  public boolean isEmpty() {
+    return diagnostics.isEmpty();
+  }
+
+  /**
+   * Whether the limit was reached, so that the input was not entirely read.
+   */
+  public boolean gaveUp() {
+    return diagnostics.size() >= policy.maxErrors();
+  }
+
+  public ErrorPolicy policy() {
+    return policy;
+  }
+
+  @Override
+  public void syntaxError(
+      Recognizer<?, ?> recognizer,
+      Object offendingSymbol,
+      int line,
+      int charPositionInLine,
+      String msg,
+      RecognitionException e) {
+    diagnostics.add(new ADiagnostic(
+          line,
+          charPositionInLine,
+          offendingSymbol instanceof Token
+          ? Optional.of(((Token)offendingSymbol).getText())
+          : Optional.empty(),
+          expected(recognizer, e),
+          msg));
+    if (gaveUp()) throw new GaveUp();
+  }
+
+  private static Set<String> expected(
+      Recognizer<?, ?> recognizer,
+      RecognitionException e) {
+    // lexer errors expect no token in particular
+    if (!(recognizer instanceof Parser)) return Set.of();
+    // missing and extraneous tokens are reported without an exception
+    var tokens = e != null
+      ? e.getExpectedTokens()
+      : ((Parser)recognizer).getExpectedTokens();
+
+    var vocabulary = recognizer.getVocabulary();
+    var names = new LinkedHashSet<String>();
+    for (int type : tokens.toList())
+      names.add(vocabulary.getDisplayName(type));
+    return names;
+  }
+}
@@ -0,0 +1,44 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+/**
+ * How many syntax errors to put up with before giving up on an input.
+ *
+ * @see Diagnostics
+ */
+public final class ErrorPolicy {
+  private final int maxErrors;
+
+  private ErrorPolicy(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  /**
+   * Give up at the first error.
+   */
+  public static ErrorPolicy bail() {
+    return new ErrorPolicy(1);
+  }
+
+  /**
+   * Recover from errors, giving up at the {@code maxErrors}th.
+   *
+   * @throws IllegalArgumentException if {@code maxErrors} is not positive
+   */
+  public static ErrorPolicy recover(int maxErrors) {
+    if (maxErrors < 1)
+      throw new IllegalArgumentException("maxErrors must be positive");
+    return new ErrorPolicy(maxErrors);
+  }
+
+  /**
+   * The number of errors at which to give up.
+   */
+  public int maxErrors() {
+    return maxErrors;
+  }
+
+  @Override
+  public String toString() {
+    return maxErrors == 1 ? "bail" : String.format("recover(%d)", maxErrors);
+  }
+}
@@ -0,0 +1,312 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+import java.util.function.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.runtime.tree.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
+/**
+ * Loads the {@link Relation}s in Prolog text, recognizing simple ground facts
+ * with a hand-written scanner instead of the lexer and parser.
+ * <p>
+ * A simple ground fact is a name applied to atoms, numbers, quoted atoms and
+ * strings: {@code edge(a, b).}, {@code reading(12, 3.4, 'x', "y").} Any other
+ * clause---and any clause the scanner is unsure about---is handed to a {@link
+ * ClauseParser} instead, so the relations are the ones {@link Programs#parse}
+ * would find, in the same order.
+ * <p>
+ * The arguments of a scanned fact are {@link TerminalNode}s over the tokens the
+ * lexer would have produced for them, rather than the usual chain of contexts
+ * above each token.
+ */
+final class GroundFactLoader {
+  // names the lexer turns into keyword tokens
+  private static final Set<String> keywords = new HashSet<>();
+
+  static {
+    for (var name : new PrologParser(null).getTokenTypeMap().keySet())
+      if (name.matches("'[a-z_]+'"))
+        keywords.add(name.substring(1, name.length() - 1));
+  }
+
+  private final CharStream input;
+  private final Consumer<? super Relation> sink;
+  private final ClauseParser clauses;
+  private final Pair<TokenSource, CharStream> source;
+  private final TermInterner interner;
+
+  private int line = 1;
+  private int column = 0;
+
+  // the text of the token being scanned
+  private final StringBuilder text = new StringBuilder();
+
+  // the comments since the last clause, and the line the last one ends on
+  private final StringBuilder comment = new StringBuilder();
+  private int commentEnd;
+
+  /**
+   * A loader whose relations have their terms hash-consed in {@code
+   * interner}, unless it is null.
+   *
+   * @see RelationCollectorListener#setTermInterner
+   */
+  GroundFactLoader(
+      CharStream input,
+      TermInterner interner,
+      Consumer<? super Relation> sink)
+  {
+    this.input = input;
+    this.sink = sink;
+    this.interner = interner;
+    clauses = new ClauseParser(input, sink);
+    clauses.intern(interner);
+    source = new Pair<>(null, input);
+  }
+
+  /**
+   * Hands every {@link Relation} in the input to the sink.
+   */
+  void run() {
+    while (true) {
+      int start = input.index();
+      int startLine = line;
+      int startColumn = column;
+      comment.setLength(0);
+
+      boolean simple = layout();
+      if (simple && input.LA(1) == IntStream.EOF) return;
+      if (simple && fact()) continue;
+
+      clauses.seek(start, startLine, startColumn);
+      if (!clauses.next()) return;
+      line = clauses.line();
+      column = clauses.charPositionInLine();
+    }
+  }
+
+  private void consume() {
+    if (input.LA(1) == '\n') {
+      ++line;
+      column = 0;
+    } else {
+      ++column;
+    }
+    input.consume();
+  }
+
+  private void scan() {
+    text.append((char)input.LA(1));
+    consume();
+  }
+
+  /**
+   * Skips whitespace and comments, collecting the latter; false if it finds
+   * a comment the lexer might not agree is one.
+   */
+  private boolean layout() {
+    while (true) {
+      int c = input.LA(1);
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+        consume();
+      } else if (c == '%') {
+        int start = input.index();
+        int startLine = line;
+        do {
+          c = input.LA(1);
+          consume();
+        } while (c != '\n' && c != '\r' && input.LA(1) != IntStream.EOF);
+        comment(start, startLine);
+      } else if (c == '/' && input.LA(2) == '*') {
+        // nested, unterminated and all-graphic comments are left to the lexer
+        int start = input.index();
+        int startLine = line;
+        boolean graphic = true;
+        consume();
+        consume();
+        while (!(input.LA(1) == '*' && input.LA(2) == '/')) {
+          c = input.LA(1);
+          if (c == IntStream.EOF || (c == '/' && input.LA(2) == '*'))
+            return false;
+          graphic &= isGraphic(c);
+          consume();
+        }
+        consume();
+        consume();
+        if (graphic) return false;
+        comment(start, startLine);
+      } else {
+        return true;
+      }
+    }
+  }
+
+  private void comment(int start, int startLine) {
+    var body = input.getText(Interval.of(start, input.index() - 1));
+    comment.append(body);
+    commentEnd = startLine + ParserUtils.countLines(body);
+  }
+
+  /**
+   * Scans a simple ground fact and hands it to the sink; false if there is
+   * not one here.
+   */
+  private boolean fact() {
+    int factLine = line;
+    int factColumn = column;
+    int start = input.index();
+    var name = name();
+    if (name == null || input.LA(1) != '(') return false;
+    consume();
+
+    var args = new ArrayList<ParseTree>();
+    while (true) {
+      spaces();
+      var arg = arg();
+      if (arg == null) return false;
+      args.add(arg);
+      spaces();
+      int c = input.LA(1);
+      if (c == IntStream.EOF) return false;
+      consume();
+      if (c == ')') break;
+      if (c != ',') return false;
+    }
+
+    spaces();
+    if (input.LA(1) != '.') return false;
+    consume();
+    // otherwise the '.' is part of a longer graphic token
+    int c = input.LA(1);
+    if (isGraphic(c) || c == '\\') return false;
+
+    var attached = comment.length() > 0 && commentEnd + 1 == factLine
+      ? Optional.<Comment>of(new AComment(comment.toString()))
+      : Optional.<Comment>empty();
+    AFact fact;
+    if (interner == null) {
+      fact = new AFact(name.getText(), args, attached);
+    } else {
+      // only the interned terms and the positions of the tokens are kept
+      var terms = List.copyOf(interner.intern(TermBuilder.terms(args)));
+      fact = new AFact(
+          name.getText(),
+          Detached.args(args, terms),
+          terms,
+          attached);
+    }
+    fact.setSourceText(SourceText.of(
+          input, start, input.index() - 1, factLine, factColumn));
+    sink.accept(fact);
+    return true;
+  }
+
+  private void spaces() {
+    for (int c = input.LA(1);
+        c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        c = input.LA(1))
+      consume();
+  }
+
+  private TerminalNode arg() {
+    int c = input.LA(1);
+    if (c >= 'a' && c <= 'z') return name();
+    if (c >= '0' && c <= '9') return number();
+    if (c == '\'') return quoted('\'', PrologLexer.QUOTED);
+    if (c == '"') return quoted('"', PrologLexer.DOUBLE_QUOTED_LIST);
+    return null;
+  }
+
+  private TerminalNode name() {
+    int c = input.LA(1);
+    if (c < 'a' || c > 'z') return null;
+
+    int start = input.index();
+    int startColumn = column;
+    text.setLength(0);
+    do {
+      scan();
+      c = input.LA(1);
+    } while (isAlphanumeric(c));
+
+    if (keywords.contains(text.toString())) return null;
+    return token(PrologLexer.LETTER_DIGIT, start, startColumn);
+  }
+
+  private TerminalNode number() {
+    int start = input.index();
+    int startColumn = column;
+    int type = PrologLexer.DECIMAL;
+    text.setLength(0);
+    digits();
+    if (input.LA(1) == '.' && isDigit(input.LA(2))) {
+      type = PrologLexer.FLOAT;
+      scan();
+      digits();
+      int e = input.LA(1);
+      int sign = input.LA(2);
+      if ((e == 'e' || e == 'E')
+          && (sign == '+' || sign == '-')
+          && isDigit(input.LA(3))) {
+        scan();
+        scan();
+        digits();
+      }
+    }
+    return token(type, start, startColumn);
+  }
+
+  private void digits() {
+    while (isDigit(input.LA(1)))
+      scan();
+  }
+
+  // no escapes, doubled quotes or characters outside printable ASCII
+  private TerminalNode quoted(char quote, int type) {
+    int start = input.index();
+    int startColumn = column;
+    text.setLength(0);
+    scan();
+    while (true) {
+      int c = input.LA(1);
+      if (c == quote) break;
+      if (c < ' ' || c > '~' || c == '\\') return null;
+      scan();
+    }
+    scan();
+    if (input.LA(1) == quote) return null;
+    return token(type, start, startColumn);
+  }
+
+  private TerminalNode token(int type, int start, int startColumn) {
+    var token = new CommonToken(
+        source,
+        type,
+        Token.DEFAULT_CHANNEL,
+        start,
+        input.index() - 1);
+    token.setLine(line);
+    token.setCharPositionInLine(startColumn);
+    token.setText(text.toString());
+    return new TerminalNodeImpl(token);
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isAlphanumeric(int c) {
+    return isDigit(c)
+      || (c >= 'a' && c <= 'z')
+      || (c >= 'A' && c <= 'Z')
+      || c == '_';
+  }
+
+  private static boolean isGraphic(int c) {
+    return c >= 0 && "#$&*+./:<=>?@^~-".indexOf(c) >= 0;
+  }
+}
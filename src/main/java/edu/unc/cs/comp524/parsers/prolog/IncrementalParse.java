@@ -0,0 +1,720 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+ * Prolog text together with its {@link Program}, which can be edited without
+ * parsing all of the text again.
+ * <p>
+ * An {@link IncrementalParse} is immutable: {@link #edit} returns a new one for
+ * the edited text, re-lexing and re-parsing only the clauses the edit touches
+ * and sharing the {@link Relation}s of all the others.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * var parse = IncrementalParse.of(text);
+ * ... parse.program() ...
+ * parse = parse.edit(start, end, replacement);
+ * ... parse.program() ...
+ * }</pre>
+ * <p>
+ * Shared relations are not re-parsed, so the lines and indices of their
+ * tokens are those of the text they were first parsed from. The text is parsed
+ * one clause at a time, as by {@link Programs#stream}.
+ * <p>
+ * Implementation notes
+ * <p>
+ * The text is kept as a sequence of chunks, each the tokens of one clause
+ * (with the comments and whitespace before it) as split by {@link
+ * ClauseParser}, and the last one running to the end of the text. An edit
+ * starts re-parsing from the first chunk it could change, which is the one
+ * ending at or after the edit: whether a {@code '.'} ends a clause depends on
+ * the char after it. Re-parsing stops at the first new chunk boundary (past
+ * the edit) which is also an old one, since from there on the text and hence
+ * the chunks are the same.
+ * <p>
+ * The chunks are the leaves of a persistent balanced tree that sums their
+ * lengths and lines, so the chunks around an edit are found, and those after
+ * it reused as they are, in time logarithmic in their number. Only the
+ * re-parsed region is lexed, reading the old chunks' text as the lexer gets to
+ * it; the whole text is only put together if {@link #text} is asked for.
+ * <p>
+ * Each chunk also has a label, increasing through the text, which keeps the
+ * relations of each name and predicate in order: an edit splices the new
+ * relations into the lists of the names it touches, in place of the old ones,
+ * and copies the rest of the program's maps.
+ */
+public final class IncrementalParse {
+  // labels are this far apart when first handed out, leaving room between
+  private static final long SPACING = 1L << 32;
+
+  /**
+   * One clause's worth of text, and its relations.
+   */
+  private static final class Chunk {
+    final String text;
+    final List<Relation> relations;
+    final long label;
+    // the newlines in the text, and the chars after the last one
+    final int lines;
+    final int column;
+
+    Chunk(String text, List<Relation> relations, long label) {
+      this.text = text;
+      this.relations = relations;
+      this.label = label;
+      int lines = 0;
+      int last = -1;
+      for (int i = 0; i < text.length(); ++i)
+        if (text.charAt(i) == '\n') {
+          ++lines;
+          last = i;
+        }
+      this.lines = lines;
+      column = text.length() - last - 1;
+    }
+
+    Chunk(Chunk chunk, long label) {
+      text = chunk.text;
+      relations = chunk.relations;
+      this.label = label;
+      lines = chunk.lines;
+      column = chunk.column;
+    }
+  }
+
+  /**
+   * A node of an AVL tree of chunks, with the totals of its subtree.
+   */
+  private static final class Node {
+    final Node left;
+    final Chunk chunk;
+    final Node right;
+    final int height;
+    final int size;
+    final int length;
+    final int lines;
+    final int column;
+
+    Node(Node left, Chunk chunk, Node right) {
+      this.left = left;
+      this.chunk = chunk;
+      this.right = right;
+      height = Math.max(height(left), height(right)) + 1;
+      size = size(left) + 1 + size(right);
+      var span = new Span();
+      span.add(left);
+      span.add(chunk.text.length(), chunk.lines, chunk.column);
+      span.add(right);
+      length = span.length;
+      lines = span.lines;
+      column = span.column;
+    }
+  }
+
+  /**
+   * The length of some text, its newlines and the chars after the last one.
+   */
+  private static final class Span {
+    int length = 0;
+    int lines = 0;
+    int column = 0;
+
+    void add(int length, int lines, int column) {
+      this.length += length;
+      if (lines > 0) {
+        this.lines += lines;
+        this.column = column;
+      } else {
+        this.column += column;
+      }
+    }
+
+    void add(Node node) {
+      if (node != null) add(node.length, node.lines, node.column);
+    }
+  }
+
+  /**
+   * The relations of one name or predicate, in order, with the labels of
+   * their chunks.
+   */
+  private static final class Group {
+    final List<Relation> relations;
+    final long[] labels;
+    // of a name: its predicates, in order of first appearance
+    final List<PredicateIndicator> predicates;
+
+    Group(
+        List<Relation> relations,
+        long[] labels,
+        List<PredicateIndicator> predicates) {
+      this.relations = relations;
+      this.labels = labels;
+      this.predicates = predicates;
+    }
+  }
+
+  /**
+   * The relations of one name or predicate an edit adds, with their labels.
+   */
+  private static final class Run {
+    final List<Relation> relations = new ArrayList<>();
+    long[] labels = new long[4];
+
+    void add(Relation relation, long label) {
+      if (relations.size() == labels.length)
+        labels = Arrays.copyOf(labels, labels.length * 2);
+      labels[relations.size()] = label;
+      relations.add(relation);
+    }
+  }
+
+  /**
+   * The edited text from char {@code from} on, read from the old chunks as
+   * the lexer gets to them; indices are those of the whole text.
+   */
+  private static final class Region implements CharStream {
+    private final int from;
+    private final StringBuilder chars;
+    private final Node old;
+    // the next old chunk to read
+    private int next;
+    private int index;
+
+    Region(int from, String head, Node old, int next) {
+      this.from = from;
+      chars = new StringBuilder(head);
+      this.old = old;
+      this.next = next;
+      index = from;
+    }
+
+    // true iff there is a char {@code at} (counting from from)
+    private boolean fill(int at) {
+      while (at >= chars.length()) {
+        if (next >= IncrementalParse.size(old)) return false;
+        chars.append(get(old, next++).text);
+      }
+      return true;
+    }
+
+    String text(int start, int end) {
+      return chars.substring(start - from, end - from);
+    }
+
+    @Override
+    public void consume() {
+      if (LA(1) == IntStream.EOF)
+        throw new IllegalStateException("cannot consume EOF");
+      ++index;
+    }
+
+    @Override
+    public int LA(int i) {
+      if (i == 0) return 0;
+      int at = index - from + (i > 0 ? i - 1 : i);
+      if (at < 0 || !fill(at)) return IntStream.EOF;
+      return chars.charAt(at);
+    }
+
+    @Override
+    public int mark() {
+      return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+      return index;
+    }
+
+    @Override
+    public void seek(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public int size() {
+      throw new UnsupportedOperationException("unknown size");
+    }
+
+    @Override
+    public String getSourceName() {
+      return IntStream.UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+      int start = Math.max(interval.a, from) - from;
+      int stop = interval.b - from;
+      while (stop >= start && !fill(stop))
+        stop = chars.length() - 1;
+      return stop < start ? "" : chars.substring(start, stop + 1);
+    }
+  }
+
+  private final Node chunks;
+  // in order of first appearance
+  private final Map<String, Group> names;
+  private final Map<PredicateIndicator, Group> predicates;
+  private final Program program;
+  private final Memo<String> text;
+
+  private IncrementalParse(
+      Node chunks,
+      Map<String, Group> names,
+      Map<PredicateIndicator, Group> predicates) {
+    this.chunks = chunks;
+    this.names = names;
+    this.predicates = predicates;
+    program = program(names, predicates);
+    text = new Memo<>(() -> {
+      var text = new StringBuilder(chunks.length);
+      append(chunks, text);
+      return text.toString();
+    });
+  }
+
+  /**
+   * Parses {@code text}.
+   */
+  public static IncrementalParse of(String text) {
+    var chunks = new ArrayList<Chunk>();
+    parse(new Region(0, text, null, 0), 0, 1, 0, chunks, -1, null, 0);
+    return of(chunks);
+  }
+
+  /**
+   * The text.
+   */
+  public String text() {
+    return text.get();
+  }
+
+  /**
+   * The program in the text.
+   */
+  public Program program() {
+    return program;
+  }
+
+  /**
+   * The text with chars {@code start} (inclusive) to {@code end} (exclusive)
+   * replaced by {@code replacement}, and its program.
+   *
+   * @throws IndexOutOfBoundsException if the chars are not in the text
+   */
+  public IncrementalParse edit(int start, int end, String replacement) {
+    if (start < 0 || end < start || end > chunks.length)
+      throw new IndexOutOfBoundsException(
+          String.format("[%d, %d) of %d chars", start, end, chunks.length));
+
+    int first = endingAtOrAfter(chunks, start);
+    var before = before(chunks, first);
+    // the old chunk the rest of the text after the edit starts in
+    int rest = endingAtOrAfter(chunks, end);
+    int restStart = before(chunks, rest).length;
+    var head =
+      get(chunks, first).text.substring(0, start - before.length)
+      + replacement
+      + get(chunks, rest).text.substring(end - restStart);
+
+    var fresh = new ArrayList<Chunk>();
+    int next = parse(
+        new Region(before.length, head, chunks, rest + 1),
+        before.length,
+        1 + before.lines,
+        before.column,
+        fresh,
+        start + replacement.length(),
+        chunks,
+        replacement.length() - (end - start));
+
+    // label the new chunks between their neighbors, if there is room
+    long lo = first > 0 ? get(chunks, first - 1).label : 0;
+    long hi = next < chunks.size ? get(chunks, next).label : Long.MAX_VALUE;
+    long step = Math.min((hi - lo) / (fresh.size() + 1), SPACING);
+    if (step == 0) {
+      var all = new ArrayList<Chunk>(chunks.size);
+      append(chunks, all);
+      all.subList(first, next).clear();
+      all.addAll(first, fresh);
+      return of(all);
+    }
+    var added = new ArrayList<Chunk>(fresh.size());
+    for (int i = 0; i < fresh.size(); ++i)
+      added.add(new Chunk(fresh.get(i), lo + step * (i + 1)));
+    var removed = new ArrayList<Chunk>(next - first);
+    for (int i = first; i < next; ++i)
+      removed.add(get(chunks, i));
+
+    var tree = concat(
+        concat(split(chunks, first)[0], tree(added, 0, added.size())),
+        split(chunks, next)[1]);
+    return update(tree, names, predicates, removed, added);
+  }
+
+  /**
+   * A parse of {@code chunks}, labelled afresh.
+   */
+  private static IncrementalParse of(List<Chunk> chunks) {
+    var labelled = new ArrayList<Chunk>(chunks.size());
+    for (int i = 0; i < chunks.size(); ++i)
+      labelled.add(new Chunk(chunks.get(i), SPACING * (i + 1)));
+    return update(
+        tree(labelled, 0, labelled.size()),
+        Map.of(),
+        Map.of(),
+        List.of(),
+        labelled);
+  }
+
+  /**
+   * Appends the chunks of {@code input} from char {@code start} (which is at
+   * {@code line} and {@code charPositionInLine}) to {@code result}, unlabelled.
+   * <p>
+   * Once past char {@code resync}, stops at the first chunk ending where one of
+   * the {@code old} chunks ends, {@code delta} chars further on.
+   *
+   * @return the index of the first old chunk after that one, or the number of
+   * old chunks if there was none
+   */
+  private static int parse(
+      Region input,
+      int start,
+      int line,
+      int charPositionInLine,
+      List<Chunk> result,
+      int resync,
+      Node old,
+      int delta) {
+    var found = new ArrayList<Relation>();
+    var clauses = new ClauseParser(input, found::add);
+    // shared relations must not keep old texts alive
+    clauses.detach();
+    clauses.seek(start, line, charPositionInLine);
+
+    while (clauses.next()) {
+      int end = input.index();
+      result.add(new Chunk(input.text(start, end), List.copyOf(found), 0));
+      found.clear();
+      start = end;
+
+      if (resync < 0 || end < resync || clauses.done()) continue;
+      int k = endingAtOrAfter(old, end - delta);
+      if (k < size(old)
+          && before(old, k).length + get(old, k).text.length() == end - delta)
+        return k + 1;
+    }
+    return size(old);
+  }
+
+  /**
+   * A parse with {@code chunks}, whose groups are {@code names} and {@code
+   * predicates} with the relations of the {@code removed} chunks replaced by
+   * those of the {@code added} ones, which take their place.
+   */
+  private static IncrementalParse update(
+      Node chunks,
+      Map<String, Group> names,
+      Map<PredicateIndicator, Group> predicates,
+      List<Chunk> removed,
+      List<Chunk> added) {
+    // the removed relations are those labelled lo to hi
+    long lo = removed.isEmpty() ? 1 : removed.get(0).label;
+    long hi = removed.isEmpty() ? 0 : removed.get(removed.size() - 1).label;
+
+    var byName = new LinkedHashMap<String, Run>();
+    var byPredicate = new LinkedHashMap<PredicateIndicator, Run>();
+    for (var chunk : removed)
+      for (var r : chunk.relations) {
+        byName.computeIfAbsent(r.name(), name -> new Run());
+        byPredicate.computeIfAbsent(PredicateIndicator.of(r), pi -> new Run());
+      }
+    for (var chunk : added)
+      for (var r : chunk.relations) {
+        byName.computeIfAbsent(r.name(), name -> new Run())
+          .add(r, chunk.label);
+        byPredicate.computeIfAbsent(PredicateIndicator.of(r), pi -> new Run())
+          .add(r, chunk.label);
+      }
+
+    var newPredicates = new HashMap<PredicateIndicator, Group>(predicates);
+    for (var entry : byPredicate.entrySet()) {
+      var group = splice(
+          predicates.get(entry.getKey()), lo, hi, entry.getValue(), null);
+      if (group == null)
+        newPredicates.remove(entry.getKey());
+      else
+        newPredicates.put(entry.getKey(), group);
+    }
+
+    var changed = new HashMap<String, Group>();
+    boolean reordered = false;
+    for (var entry : byName.entrySet()) {
+      var old = names.get(entry.getKey());
+      var pis = new LinkedHashSet<PredicateIndicator>();
+      if (old != null) pis.addAll(old.predicates);
+      for (var r : entry.getValue().relations)
+        pis.add(PredicateIndicator.of(r));
+      pis.removeIf(pi -> !newPredicates.containsKey(pi));
+      var ordered = new ArrayList<>(pis);
+      ordered.sort(Comparator.comparingLong(pi ->
+            newPredicates.get(pi).labels[0]));
+
+      var group = splice(old, lo, hi, entry.getValue(), ordered);
+      changed.put(entry.getKey(), group);
+      reordered |= old == null
+        || group == null
+        || old.labels[0] != group.labels[0];
+    }
+
+    var newNames = new LinkedHashMap<String, Group>();
+    if (reordered) {
+      var all = new HashMap<>(names);
+      all.putAll(changed);
+      all.values().removeIf(Objects::isNull);
+      var order = new ArrayList<>(all.entrySet());
+      order.sort(Comparator.comparingLong(e -> e.getValue().labels[0]));
+      for (var entry : order)
+        newNames.put(entry.getKey(), entry.getValue());
+    } else {
+      newNames.putAll(names);
+      newNames.putAll(changed);
+    }
+    return new IncrementalParse(chunks, newNames, newPredicates);
+  }
+
+  /**
+   * {@code group} with its relations labelled {@code lo} to {@code hi}
+   * replaced by those of {@code run}, or null if that leaves none.
+   */
+  private static Group splice(
+      Group group,
+      long lo,
+      long hi,
+      Run run,
+      List<PredicateIndicator> predicates) {
+    var relations = group == null ? List.<Relation>of() : group.relations;
+    var labels = group == null ? new long[0] : group.labels;
+    int from = lowerBound(labels, lo);
+    int to = Math.max(from, lowerBound(labels, hi + 1));
+    int added = run.relations.size();
+    int size = labels.length - (to - from) + added;
+    if (size == 0) return null;
+
+    var newRelations = new Relation[size];
+    var newLabels = new long[size];
+    for (int i = 0; i < from; ++i)
+      newRelations[i] = relations.get(i);
+    System.arraycopy(labels, 0, newLabels, 0, from);
+    for (int i = 0; i < added; ++i)
+      newRelations[from + i] = run.relations.get(i);
+    System.arraycopy(run.labels, 0, newLabels, from, added);
+    for (int i = to; i < labels.length; ++i)
+      newRelations[i - to + from + added] = relations.get(i);
+    System.arraycopy(
+        labels, to, newLabels, from + added, labels.length - to);
+    return new Group(
+        Collections.unmodifiableList(Arrays.asList(newRelations)),
+        newLabels,
+        predicates);
+  }
+
+  private static int lowerBound(long[] labels, long label) {
+    int lo = 0, hi = labels.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (labels[mid] < label)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  private static Program program(
+      Map<String, Group> names,
+      Map<PredicateIndicator, Group> predicates) {
+    var clauses = new LinkedHashMap<String, List<Relation>>();
+    var index = new LinkedHashMap<PredicateIndicator, List<Relation>>();
+    for (var entry : names.entrySet()) {
+      clauses.put(entry.getKey(), entry.getValue().relations);
+      for (var pi : entry.getValue().predicates)
+        index.put(pi, predicates.get(pi).relations);
+    }
+    return new AProgram(clauses, index);
+  }
+
+  private static int height(Node t) {
+    return t == null ? 0 : t.height;
+  }
+
+  private static int size(Node t) {
+    return t == null ? 0 : t.size;
+  }
+
+  /**
+   * Chunk {@code i} of {@code t}.
+   */
+  private static Chunk get(Node t, int i) {
+    while (true) {
+      int left = size(t.left);
+      if (i < left) {
+        t = t.left;
+      } else if (i == left) {
+        return t.chunk;
+      } else {
+        i -= left + 1;
+        t = t.right;
+      }
+    }
+  }
+
+  /**
+   * The text of {@code t} before chunk {@code i}.
+   */
+  private static Span before(Node t, int i) {
+    var span = new Span();
+    while (t != null) {
+      int left = size(t.left);
+      if (i <= left) {
+        t = t.left;
+      } else {
+        span.add(t.left);
+        span.add(t.chunk.text.length(), t.chunk.lines, t.chunk.column);
+        i -= left + 1;
+        t = t.right;
+      }
+    }
+    return span;
+  }
+
+  /**
+   * The first chunk of {@code t} ending at or after char {@code index}, or
+   * their number if there is none.
+   */
+  private static int endingAtOrAfter(Node t, int index) {
+    int i = 0;
+    int start = 0;
+    while (t != null) {
+      int leftEnd = start + (t.left == null ? 0 : t.left.length);
+      if (t.left != null && leftEnd >= index) {
+        t = t.left;
+        continue;
+      }
+      int end = leftEnd + t.chunk.text.length();
+      if (end >= index) return i + size(t.left);
+      i += size(t.left) + 1;
+      start = end;
+      t = t.right;
+    }
+    return i;
+  }
+
+  private static void append(Node t, StringBuilder text) {
+    if (t == null) return;
+    append(t.left, text);
+    text.append(t.chunk.text);
+    append(t.right, text);
+  }
+
+  private static void append(Node t, List<Chunk> chunks) {
+    if (t == null) return;
+    append(t.left, chunks);
+    chunks.add(t.chunk);
+    append(t.right, chunks);
+  }
+
+  /**
+   * A balanced tree of {@code chunks} {@code from} (inclusive) to {@code to}
+   * (exclusive).
+   */
+  private static Node tree(List<Chunk> chunks, int from, int to) {
+    if (from == to) return null;
+    int mid = (from + to) >>> 1;
+    return new Node(
+        tree(chunks, from, mid),
+        chunks.get(mid),
+        tree(chunks, mid + 1, to));
+  }
+
+  // the tree operations follow OCaml's Set, which lets heights differ by 2
+
+  private static Node balance(Node l, Chunk c, Node r) {
+    int hl = height(l);
+    int hr = height(r);
+    if (hl > hr + 2) {
+      if (height(l.left) >= height(l.right))
+        return new Node(l.left, l.chunk, new Node(l.right, c, r));
+      return new Node(
+          new Node(l.left, l.chunk, l.right.left),
+          l.right.chunk,
+          new Node(l.right.right, c, r));
+    }
+    if (hr > hl + 2) {
+      if (height(r.right) >= height(r.left))
+        return new Node(new Node(l, c, r.left), r.chunk, r.right);
+      return new Node(
+          new Node(l, c, r.left.left),
+          r.left.chunk,
+          new Node(r.left.right, r.chunk, r.right));
+    }
+    return new Node(l, c, r);
+  }
+
+  /**
+   * All of {@code l}, then {@code c}, then all of {@code r}.
+   */
+  private static Node join(Node l, Chunk c, Node r) {
+    if (l == null) return addFirst(c, r);
+    if (r == null) return addLast(l, c);
+    if (l.height > r.height + 2)
+      return balance(l.left, l.chunk, join(l.right, c, r));
+    if (r.height > l.height + 2)
+      return balance(join(l, c, r.left), r.chunk, r.right);
+    return new Node(l, c, r);
+  }
+
+  private static Node addFirst(Chunk c, Node t) {
+    if (t == null) return new Node(null, c, null);
+    return balance(addFirst(c, t.left), t.chunk, t.right);
+  }
+
+  private static Node addLast(Node t, Chunk c) {
+    if (t == null) return new Node(null, c, null);
+    return balance(t.left, t.chunk, addLast(t.right, c));
+  }
+
+  private static Node concat(Node l, Node r) {
+    if (l == null) return r;
+    if (r == null) return l;
+    return join(l, get(r, 0), removeFirst(r));
+  }
+
+  private static Node removeFirst(Node t) {
+    if (t.left == null) return t.right;
+    return balance(removeFirst(t.left), t.chunk, t.right);
+  }
+
+  /**
+   * The first {@code i} chunks of {@code t}, and the rest.
+   */
+  private static Node[] split(Node t, int i) {
+    if (t == null) return new Node[] { null, null };
+    int left = size(t.left);
+    if (i <= left) {
+      var parts = split(t.left, i);
+      return new Node[] { parts[0], join(parts[1], t.chunk, t.right) };
+    }
+    var parts = split(t.right, i - left - 1);
+    return new Node[] { join(t.left, t.chunk, parts[0]), parts[1] };
+  }
+}
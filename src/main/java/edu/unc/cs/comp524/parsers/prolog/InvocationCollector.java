@@ -0,0 +1,162 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+/**
+ * A {@link PrologListener} that collects the {@link RuleInvocation}s in a term
+ * (typically the body of a predicate) in a single tree-walk.
+ * <p>
+ * Finds the same invocations as {@link ParserUtils#invocationPattern} together
+ * with {@link InvocationMatcher#invocationMatchers}, in the same order, without
+ * matching ~60 patterns against every node of the term.
+ * <p>
+ * Implementation notes
+ * <p>
+ * Each operator context is dispatched on its rule index to a table of the
+ * operators defined at that precedence level; the operator token's text picks
+ * the entry. Invocations are gathered into one bucket per entry (plus one for
+ * compound terms) and concatenated in table order, which is the order of
+ * {@link InvocationMatcher#invocationMatchers}.
+ */
+public class InvocationCollector extends PrologBaseListener {
+
+  /**
+   * The operators of one precedence level, keyed by token text, giving the
+   * bucket their invocations are collected in.
+   */
+  private static final class Operators {
+    final boolean prefix;
+    final Map<String, Integer> buckets = new HashMap<>();
+
+    Operators(boolean prefix) {
+      this.prefix = prefix;
+    }
+  }
+
+  private static final Operators[] operators =
+    new Operators[PrologParser.ruleNames.length];
+
+  // bucket 0 holds the compound-term invocations
+  private static int buckets = 1;
+
+  static {
+    // keep in the same order as InvocationMatcher.invocationMatchers
+    infix(PrologParser.RULE_binary1200, ":-", "-->");
+    prefix(PrologParser.RULE_unary1200, ":-", "?-");
+    prefix(PrologParser.RULE_unary1150,
+        "dynamic",
+        "discontiguous",
+        "initialization",
+        "meta_predicate",
+        "module_transparent",
+        "multifile",
+        "public",
+        "thread_local",
+        "thread_initialization",
+        "volatile");
+    infix(PrologParser.RULE_binaryRight1100, ";", "|");
+    infix(PrologParser.RULE_binaryRight1050, "->", "*->");
+    infix(PrologParser.RULE_binaryRight1000, ",");
+    infix(PrologParser.RULE_binary990, ":=");
+    prefix(PrologParser.RULE_unary900, "\\+");
+    infix(PrologParser.RULE_binary700,
+        "<", "=", "=..", "=@=", "\\=@=", "=:=", "=<", "==", "=\\=", ">", ">=",
+        "@<", "@=<", "@>", "@>=", "\\=", "\\==", "as", "is", ">:<", ":<");
+    infix(PrologParser.RULE_binaryRight600, ":");
+    infix(PrologParser.RULE_binaryLeft500, "+", "-", "/\\", "\\/", "xor");
+    prefix(PrologParser.RULE_unary500, "?");
+    infix(PrologParser.RULE_binaryLeft400,
+        "*", "/", "//", "div", "rdiv", "<<", ">>", "rem", "mod");
+    infix(PrologParser.RULE_binary200, "**");
+    infix(PrologParser.RULE_binaryRight200, "^");
+    prefix(PrologParser.RULE_unary200, "+", "-", "\\");
+    prefix(PrologParser.RULE_unary1, "$");
+  }
+
+  private static void infix(int rule, String... names) {
+    table(rule, false, names);
+  }
+
+  private static void prefix(int rule, String... names) {
+    table(rule, true, names);
+  }
+
+  private static void table(int rule, boolean prefix, String... names) {
+    var ops = new Operators(prefix);
+    for (var name : names)
+      ops.buckets.put(name, buckets++);
+    operators[rule] = ops;
+  }
+
+  private final List<List<RuleInvocation>> found;
+
+  public InvocationCollector() {
+    found = new ArrayList<>(buckets);
+    for (int i = 0; i < buckets; ++i)
+      found.add(new ArrayList<>());
+  }
+
+  /**
+   * All the invocations found in {@code tree}.
+   */
+  public static List<RuleInvocation> invocations(ParseTree tree) {
+    var collector = new InvocationCollector();
+    ParseTreeWalker.DEFAULT.walk(collector, tree);
+    return collector.invocations();
+  }
+
+  /**
+   * The invocations found during the tree-walk(s).
+   */
+  public List<RuleInvocation> invocations() {
+    var result = new ArrayList<RuleInvocation>();
+    found.forEach(result::addAll);
+    return result;
+  }
+
+  @Override
+  public void enterCompound_term(PrologParser.Compound_termContext ctx) {
+    var invocation = new ARuleInvocation(ctx.atom(), ctx.termlist());
+    invocation.setSourceText(SourceText.of(ctx));
+    found.get(0).add(invocation);
+  }
+
+  @Override
+  public void enterEveryRule(ParserRuleContext ctx) {
+    var ops = operators[ctx.getRuleIndex()];
+    if (ops == null) return;
+
+    if (ops.prefix && ctx.getChildCount() == 2)
+      add(ops, ctx, ctx.getChild(0), List.of(ctx.getChild(1)));
+    else if (!ops.prefix && ctx.getChildCount() == 3)
+      add(
+          ops,
+          ctx,
+          ctx.getChild(1),
+          List.of(ctx.getChild(0), ctx.getChild(2)));
+  }
+
+  private void add(
+      Operators ops,
+      ParserRuleContext ctx,
+      ParseTree operator,
+      List<ParseTree> args)
+  {
+    if (!(operator instanceof TerminalNode) || operator instanceof ErrorNode)
+      return;
+    for (var arg : args)
+      if (!(arg instanceof ParserRuleContext))
+        return;
+
+    var name = operator.getText();
+    var bucket = ops.buckets.get(name);
+    if (bucket != null) {
+      var invocation = new ARuleInvocation(name, args);
+      invocation.setSourceText(SourceText.of(ctx));
+      found.get(bucket).add(invocation);
+    }
+  }
+}
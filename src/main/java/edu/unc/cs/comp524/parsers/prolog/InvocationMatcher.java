@@ -10,8 +10,9 @@ import org.antlr.v4.runtime.tree.pattern.*;
  * A matcher against invocations of rules that knows how to process invocations
  * and create {@link RuleInvocation}s.
  * <p>
- * Primarily used in {@link RelationCollectorListener} to match invocations in
- * the body of predicates.
+ * Useful for matching invocations of a single operator; {@link
+ * RelationCollectorListener} uses {@link InvocationCollector} instead, which
+ * finds the invocations of all operators in one tree-walk.
  * <p>
  * Implementation notes
  * <p>
@@ -95,9 +96,22 @@ public interface InvocationMatcher {
   /**
    * The default matchers for all operators defined in the grammar.
    * <p>
+   * The matchers are compiled once per JVM and shared; {@code p} and {@code l}
+   * only identify the grammar.
+   * <p>
    * See implementation notes above and the source for their definition.
+   *
+   * @see #compileInvocationMatchers
    */
   public static List<InvocationMatcher> invocationMatchers(PrologParser p, PrologLexer l) {
+    return PatternCache.of(p).invocationMatchers();
+  }
+
+  /**
+   * Like {@link #invocationMatchers}, but compiles a fresh set of matchers
+   * using {@code p} and {@code l}.
+   */
+  public static List<InvocationMatcher> compileInvocationMatchers(PrologParser p, PrologLexer l) {
     var m = new ParseTreePatternMatcher(l, p);
     m.setDelimiters("<", ">", "`");
     return List.of(
@@ -0,0 +1,58 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+/**
+ * A numeric literal in a {@link Rule} that is not one of the allowed numbers.
+ *
+ * @see Program#magicNumbers
+ */
+public final class MagicNumber {
+  private final Rule rule;
+  private final String text;
+  private final int line;
+  private final int column;
+
+  public MagicNumber(Rule rule, String text, int line, int column) {
+    this.rule = rule;
+    this.text = text;
+    this.line = line;
+    this.column = column;
+  }
+
+  /**
+   * The rule the literal is in.
+   */
+  public Rule rule() {
+    return rule;
+  }
+
+  /**
+   * The literal, as written.
+   */
+  public String text() {
+    return text;
+  }
+
+  /**
+   * The line (from 1) of the literal in the program's source, or -1 if not
+   * known.
+   */
+  public int line() {
+    return line;
+  }
+
+  /**
+   * The column (from 0) of the literal in the program's source, or -1 if not
+   * known.
+   */
+  public int column() {
+    return column;
+  }
+
+  /**
+   * {@code text} at {@code line:column} in {@code name}.
+   */
+  @Override
+  public String toString() {
+    return String.format("%s at %d:%d in %s", text, line, column, rule.name());
+  }
+}
@@ -0,0 +1,124 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.math.*;
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+/**
+ * The default {@link Program#magicNumbers}: the numeric tokens of each rule
+ * that are not allowed.
+ * <p>
+ * A rule that still has its parse-tree is scanned by walking the tokens of
+ * its clause. Otherwise its {@link Relation#sourceText} is lexed again, with
+ * positions counted from where the text started in the source. Either way
+ * each token is looked at once.
+ * <p>
+ * Integers (in any base) are allowed if their value is in the allowed set,
+ * and floats if they are whole numbers that are. Character codes such as
+ * {@code 0'a} stand for their character, so are never magic.
+ */
+final class MagicNumbers {
+  private MagicNumbers() {}
+
+  /**
+   * The magic numbers in the rules of {@code program}, in program order.
+   */
+  static List<MagicNumber> of(Program program, Set<Integer> allowed) {
+    var found = new ArrayList<MagicNumber>();
+    Program.rules(program.relations()).forEach(r -> {
+      var clause = clause(r);
+      if (clause != null) walk(r, clause, allowed, found);
+      else lex(r, allowed, found);
+    });
+    return found;
+  }
+
+  // the clause r was collected from, if it is still a parse-tree
+  private static ParseTree clause(Rule r) {
+    var trees = new ArrayList<ParseTree>(r.args());
+    if (trees.isEmpty())
+      for (var ri : r.rhs())
+        trees.addAll(ri.args());
+    if (trees.isEmpty()) return null;
+    for (var t = trees.get(0).getParent(); t != null; t = t.getParent())
+      if (t instanceof PrologParser.ClauseContext) return t;
+    return null;
+  }
+
+  private static void walk(
+      Rule r, ParseTree clause, Set<Integer> allowed, List<MagicNumber> found)
+  {
+    var pending = new ArrayDeque<ParseTree>();
+    pending.push(clause);
+    while (!pending.isEmpty()) {
+      var tree = pending.pop();
+      if (tree instanceof TerminalNode) {
+        var token = ((TerminalNode)tree).getSymbol();
+        check(r, token, token.getLine(), token.getCharPositionInLine(),
+            allowed, found);
+      } else {
+        for (int i = tree.getChildCount() - 1; i >= 0; --i)
+          pending.push(tree.getChild(i));
+      }
+    }
+  }
+
+  private static void lex(
+      Rule r, Set<Integer> allowed, List<MagicNumber> found)
+  {
+    var text = r.sourceText();
+    var lexer = new PrologLexer(new ANTLRInputStream(text.toString()));
+    lexer.removeErrorListeners();
+    boolean placed = text instanceof SourceText
+      && ((SourceText)text).line() > 0;
+    if (placed) {
+      lexer.setLine(((SourceText)text).line());
+      lexer.setCharPositionInLine(((SourceText)text).column());
+    }
+    for (var token = lexer.nextToken();
+        token.getType() != Token.EOF;
+        token = lexer.nextToken())
+    {
+      if (token.getChannel() != Token.DEFAULT_CHANNEL) continue;
+      check(r, token,
+          placed ? token.getLine() : -1,
+          placed ? token.getCharPositionInLine() : -1,
+          allowed, found);
+    }
+  }
+
+  private static void check(
+      Rule r, Token token, int line, int column,
+      Set<Integer> allowed, List<MagicNumber> found)
+  {
+    var text = token.getText();
+    BigInteger value;
+    try {
+      switch (token.getType()) {
+        case PrologLexer.DECIMAL:
+          value = new BigInteger(text);
+          break;
+        case PrologLexer.BINARY:
+          value = new BigInteger(text.substring(2), 2);
+          break;
+        case PrologLexer.OCTAL:
+          value = new BigInteger(text.substring(2), 8);
+          break;
+        case PrologLexer.HEX:
+          value = new BigInteger(text.substring(2), 16);
+          break;
+        case PrologLexer.FLOAT:
+          value = new BigDecimal(text).toBigIntegerExact();
+          break;
+        default:
+          return;
+      }
+      if (allowed.contains(value.intValueExact())) return;
+    } catch (ArithmeticException e) {
+      // a fraction, or too big to be allowed
+    }
+    found.add(new MagicNumber(r, text, line, column));
+  }
+}
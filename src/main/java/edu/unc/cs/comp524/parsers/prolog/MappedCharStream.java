@@ -0,0 +1,325 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+ * A {@link CharStream} over a memory-mapped UTF-8 file.
+ * <p>
+ * Unlike {@link ANTLRFileStream}, the file is never copied onto the heap:
+ * characters are decoded from the mapping (through a small window) as the
+ * lexer asks for them, and {@link #getText} decodes the bytes of the requested
+ * range directly.
+ * Malformed input decodes to {@code U+FFFD}, as with {@link
+ * StandardCharsets#UTF_8}.
+ * <p>
+ * Implementation notes
+ * <p>
+ * Stream indices count UTF-16 {@code char}s, as in every other {@link
+ * CharStream}, so a position is a byte offset plus whether it is at the low
+ * surrogate of a supplementary character. Positions are reached by stepping
+ * from the current one (the lexer rarely moves far), or from the nearest of
+ * the checkpoints recorded every 1024 characters on the way through the file.
+ */
+public class MappedCharStream implements CharStream {
+  private static final int STRIDE = 1024;
+  private static final int REGION_BITS = 30;
+  private static final int REGION = 1 << REGION_BITS;
+
+  /**
+   * A position in the file.
+   */
+  private static final class Cursor {
+    int index;
+    long offset;
+    boolean second;
+
+    void set(Cursor c) {
+      index = c.index;
+      offset = c.offset;
+      second = c.second;
+    }
+  }
+
+  private final String name;
+  private final ByteBuffer[] regions;
+  private final long length;
+
+  // bytes are read through a small window, refilled in bulk from the mapping
+  private final byte[] window = new byte[1 << 16];
+  private long windowStart = 0;
+  private int windowLength = 0;
+
+  private final Cursor p = new Cursor();
+  private final Cursor probe = new Cursor();
+
+  // checkpoint k is (offset << 1 | second) of char k * STRIDE
+  private long[] checkpoints = new long[16];
+  private int known = 1;
+  private int size = -1;
+
+  public MappedCharStream(Path path) throws IOException {
+    name = path.toString();
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      length = channel.size();
+      regions = new ByteBuffer[(int)((length + REGION - 1) / REGION)];
+      for (int i = 0; i < regions.length; ++i) {
+        long start = (long)i * REGION;
+        regions[i] = channel.map(
+            FileChannel.MapMode.READ_ONLY,
+            start,
+            Math.min(REGION, length - start));
+      }
+    }
+  }
+
+  @Override
+  public void consume() {
+    if (p.offset >= length)
+      throw new IllegalStateException("cannot consume EOF");
+    forward(p);
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) return 0; // undefined
+    if (i < 0) ++i; // LA(-1) is the char before p
+    int index = p.index + i - 1;
+    if (index < 0) return IntStream.EOF;
+
+    // ASCII all the way from p
+    if (i > 0 && !p.second && p.offset + i <= length) {
+      int b = 0;
+      for (long o = p.offset; o < p.offset + i && b >= 0; ++o)
+        b = get(o);
+      if (b >= 0) return b;
+    }
+
+    Cursor c = p;
+    if (index != p.index) {
+      c = probe;
+      if (!moveTo(c, index)) return IntStream.EOF;
+    }
+    if (c.offset >= length) return IntStream.EOF;
+    return charAt(c);
+  }
+
+  @Override
+  public int index() {
+    return p.index;
+  }
+
+  @Override
+  public int size() {
+    if (size < 0) {
+      moveTo(probe, known * STRIDE - STRIDE);
+      while (probe.offset < length)
+        forward(probe);
+      size = probe.index;
+    }
+    return size;
+  }
+
+  /** mark/release do nothing; the whole file is always available */
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {}
+
+  @Override
+  public void seek(int index) {
+    moveTo(p, index);
+  }
+
+  @Override
+  public String getSourceName() {
+    return name;
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    if (!moveTo(probe, interval.a) || probe.offset >= length) return "";
+    if (probe.second)
+      return slowText(interval);
+    long start = probe.offset;
+
+    moveTo(probe, interval.b + 1);
+    if (probe.second)
+      return slowText(interval);
+
+    var bytes = new byte[(int)(probe.offset - start)];
+    copy(start, bytes, bytes.length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString() {
+    return getText(Interval.of(0, size() - 1));
+  }
+
+  // for ranges that split a surrogate pair
+  private String slowText(Interval interval) {
+    var text = new StringBuilder();
+    moveTo(probe, interval.a);
+    while (probe.index <= interval.b && probe.offset < length) {
+      text.append((char)charAt(probe));
+      forward(probe);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Moves {@code c} to char {@code index}; false if that is past the end.
+   */
+  private boolean moveTo(Cursor c, int index) {
+    if (c != p && Math.abs(index - p.index) < Math.abs(index - c.index))
+      c.set(p);
+
+    int k = Math.min(index / STRIDE, known - 1);
+    if (index < c.index - STRIDE || c.index < k * STRIDE)
+      c.set(checkpoint(k));
+
+    while (c.index > index)
+      if (!backward(c)) {
+        // not valid UTF-8 here: replay from the checkpoint
+        c.set(checkpoint(index / STRIDE));
+        break;
+      }
+    while (c.index < index) {
+      if (c.offset >= length) return false;
+      forward(c);
+    }
+    return true;
+  }
+
+  private Cursor checkpoint(int k) {
+    var c = new Cursor();
+    c.index = k * STRIDE;
+    c.offset = checkpoints[k] >>> 1;
+    c.second = (checkpoints[k] & 1) != 0;
+    return c;
+  }
+
+  private void forward(Cursor c) {
+    if (!c.second && get(c.offset) >= 0) {
+      ++c.offset;
+    } else {
+      step(c);
+    }
+    ++c.index;
+
+    if (c.index == known * STRIDE) {
+      if (known == checkpoints.length)
+        checkpoints = Arrays.copyOf(checkpoints, known * 2);
+      checkpoints[known++] = c.offset << 1 | (c.second ? 1 : 0);
+    }
+  }
+
+  private void step(Cursor c) {
+    long decoded = decode(c.offset);
+    int cp = (int)(decoded >>> 3);
+    if (!c.second && Character.isSupplementaryCodePoint(cp)) {
+      c.second = true;
+    } else {
+      c.offset += decoded & 7;
+      c.second = false;
+    }
+  }
+
+  // false if the previous character cannot be found by looking back
+  private boolean backward(Cursor c) {
+    if (c.second) {
+      c.second = false;
+      --c.index;
+      return true;
+    }
+    for (long start = c.offset - 1; start >= 0 && start >= c.offset - 4; --start) {
+      if ((get(start) & 0xC0) == 0x80) continue;
+
+      long decoded = decode(start);
+      if (start + (decoded & 7) != c.offset) return false;
+      c.offset = start;
+      c.second = Character.isSupplementaryCodePoint((int)(decoded >>> 3));
+      --c.index;
+      return true;
+    }
+    return false;
+  }
+
+  private int charAt(Cursor c) {
+    int cp = (int)(decode(c.offset) >>> 3);
+    if (!Character.isSupplementaryCodePoint(cp)) return cp;
+    return c.second ? Character.lowSurrogate(cp) : Character.highSurrogate(cp);
+  }
+
+  private byte get(long offset) {
+    long i = offset - windowStart;
+    if (i >= 0 && i < windowLength) return window[(int)i];
+
+    // keep some bytes before offset, for stepping back
+    windowStart = Math.max(0, offset - STRIDE);
+    windowLength = (int)Math.min(window.length, length - windowStart);
+    copy(windowStart, window, windowLength);
+    return window[(int)(offset - windowStart)];
+  }
+
+  private void copy(long start, byte[] bytes, int count) {
+    for (int copied = 0; copied < count; ) {
+      long offset = start + copied;
+      var region = regions[(int)(offset >>> REGION_BITS)].duplicate();
+      region.position((int)offset & (REGION - 1));
+      int n = Math.min(region.remaining(), count - copied);
+      region.get(bytes, copied, n);
+      copied += n;
+    }
+  }
+
+  /**
+   * The code point at {@code offset} and its length in bytes, as
+   * {@code codePoint << 3 | length}.
+   * <p>
+   * An invalid sequence decodes to {@code U+FFFD}, and its length is that of
+   * its longest valid prefix (at least 1), as in {@link CharsetDecoder}.
+   */
+  private long decode(long offset) {
+    int b0 = get(offset) & 0xFF;
+    if (b0 < 0x80) return (long)b0 << 3 | 1;
+
+    int needed, lo = 0x80, hi = 0xBF, cp;
+    if (b0 >= 0xC2 && b0 <= 0xDF) {
+      needed = 1;
+      cp = b0 & 0x1F;
+    } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+      needed = 2;
+      cp = b0 & 0x0F;
+      if (b0 == 0xE0) lo = 0xA0;
+      if (b0 == 0xED) hi = 0x9F;
+    } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+      needed = 3;
+      cp = b0 & 0x07;
+      if (b0 == 0xF0) lo = 0x90;
+      if (b0 == 0xF4) hi = 0x8F;
+    } else {
+      return (long)0xFFFD << 3 | 1;
+    }
+
+    for (int i = 1; i <= needed; ++i) {
+      int b = offset + i < length ? get(offset + i) & 0xFF : -1;
+      if (b < lo || b > hi) return (long)0xFFFD << 3 | i;
+      cp = cp << 6 | (b & 0x3F);
+      lo = 0x80;
+      hi = 0xBF;
+    }
+    return (long)cp << 3 | (needed + 1);
+  }
+}
@@ -0,0 +1,42 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.function.*;
+
+/**
+ * A value computed when first asked for.
+ * <p>
+ * Safe to share between threads: the value is computed only once, and safely
+ * published.
+ */
+final class Memo<T> {
+  // dropped once the value is known
+  private Supplier<? extends T> compute;
+  private volatile T value;
+
+  Memo(Supplier<? extends T> compute) {
+    this.compute = compute;
+  }
+
+  /**
+   * A memo of a value already known.
+   */
+  static <T> Memo<T> of(T value) {
+    var memo = new Memo<T>(null);
+    memo.value = value;
+    return memo;
+  }
+
+  T get() {
+    var value = this.value;
+    if (value == null) {
+      synchronized (this) {
+        if (this.value == null) {
+          this.value = compute.get();
+          compute = null;
+        }
+        value = this.value;
+      }
+    }
+    return value;
+  }
+}
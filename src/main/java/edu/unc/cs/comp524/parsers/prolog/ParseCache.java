@@ -0,0 +1,177 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import org.antlr.v4.runtime.*;
+
+/**
+ * An on-disk cache of parsed {@link Program}s, as {@link Snapshot}s named by
+ * the hash of their source.
+ * <p>
+ * Entries are keyed by the SHA-256 of the source's bytes together with the
+ * grammar (its serialized lexer and parser ATNs), the version of what is
+ * collected from it, the library's implementation version (when it has one)
+ * and {@link Snapshot#VERSION}, so a changed grammar, library or snapshot
+ * layout never finds old entries. The
+ * directory may be shared between processes: entries are written to a
+ * temporary file and then moved into place.
+ * <p>
+ * When the entries take more than the given number of bytes, the least
+ * recently used (by modification time, which a hit updates) are deleted.
+ * <p>
+ * Programs from the cache---even those parsed on a miss---are {@link
+ * TreeRetention#DETACH}ed, so they are the same whether or not they were
+ * found.
+ */
+public final class ParseCache {
+  private static final String SUFFIX = ".snapshot";
+  private static final byte[] VERSION = version();
+
+  private final Path directory;
+  private final long maxBytes;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * A cache of at most {@code maxBytes} in {@code directory}, which is
+   * created if need be.
+   */
+  public ParseCache(Path directory, long maxBytes) throws IOException {
+    if (maxBytes < 0)
+      throw new IllegalArgumentException("negative size: " + maxBytes);
+    this.directory = Files.createDirectories(directory);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, from the cache
+   * if it has been parsed before.
+   */
+  public Program parse(Path path) throws IOException {
+    var source = Files.readAllBytes(path);
+    var entry = directory.resolve(key(source) + SUFFIX);
+    Program cached = null;
+    try {
+      cached = Snapshot.load(entry);
+    } catch (NoSuchFileException e) {
+      // parse it
+    } catch (IOException e) {
+      // a damaged entry
+      Files.deleteIfExists(entry);
+    }
+    if (cached != null) {
+      hits.incrementAndGet();
+      try {
+        Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+      } catch (IOException e) {
+        // evicted meanwhile; the program is loaded all the same
+      }
+      return cached;
+    }
+
+    misses.incrementAndGet();
+    var program = Programs.parse(
+        new ANTLRInputStream(new String(source, StandardCharsets.UTF_8)),
+        TreeRetention.DETACH);
+    var temporary = Files.createTempFile(directory, "entry", ".tmp");
+    try {
+      Snapshot.write(program, temporary);
+      Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    evict();
+    return program;
+  }
+
+  /**
+   * The number of {@link #parse}s answered from the cache.
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * The number of {@link #parse}s that had to parse.
+   */
+  public long misses() {
+    return misses.get();
+  }
+
+  // deletes the oldest entries until the rest fit
+  private void evict() throws IOException {
+    var entries = new ArrayList<Path>();
+    var modified = new HashMap<Path, FileTime>();
+    long total = 0;
+    try (var listing = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (var entry : listing) {
+        try {
+          var attributes =
+            Files.readAttributes(entry, BasicFileAttributes.class);
+          entries.add(entry);
+          modified.put(entry, attributes.lastModifiedTime());
+          total += attributes.size();
+        } catch (NoSuchFileException e) {
+          // evicted by another process
+        }
+      }
+    }
+    if (total <= maxBytes) return;
+
+    entries.sort(Comparator.comparing(modified::get));
+    for (var entry : entries) {
+      if (total <= maxBytes) break;
+      try {
+        long size = Files.size(entry);
+        Files.delete(entry);
+        total -= size;
+      } catch (NoSuchFileException e) {
+        // likewise
+      }
+    }
+  }
+
+  private static String key(byte[] source) {
+    var digest = sha256();
+    digest.update(VERSION);
+    digest.update(source);
+    var hex = new StringBuilder();
+    for (var b : digest.digest())
+      hex.append(String.format("%02x", b));
+    return hex.toString();
+  }
+
+  // identifies the grammar, the library and the snapshot layout
+  private static byte[] version() {
+    var digest = sha256();
+    digest.update(PrologLexer._serializedATN.getBytes(StandardCharsets.UTF_8));
+    digest.update(PrologParser._serializedATN.getBytes(StandardCharsets.UTF_8));
+    digest.update(ByteBuffer.allocate(8)
+        .putInt(RelationCollectorListener.VERSION)
+        .putInt(Snapshot.VERSION)
+        .array());
+    // only set when running from a jar built with one
+    var implementation =
+      ParseCache.class.getPackage().getImplementationVersion();
+    if (implementation != null)
+      digest.update(implementation.getBytes(StandardCharsets.UTF_8));
+    return digest.digest();
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM has SHA-256
+      throw new AssertionError(e);
+    }
+  }
+}
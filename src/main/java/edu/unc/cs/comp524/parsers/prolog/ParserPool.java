@@ -0,0 +1,78 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+
+/**
+ * A pool of {@link PrologParser}s (each with its own {@link PrologLexer}),
+ * reset and reused between inputs.
+ * <p>
+ * Neither parsers nor lexers may be shared between threads, but a pool may: a
+ * parser belongs to whoever acquired it until it is released. All parsers
+ * share the grammar's ATN and DFA caches regardless.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * var parser = pool.acquire(input);
+ * try {
+ *   ... parser.p_text() ...
+ * } finally {
+ *   pool.release(parser);
+ * }
+ * }</pre>
+ */
+public final class ParserPool {
+  private final Queue<PrologParser> idle = new ConcurrentLinkedQueue<>();
+
+  /**
+   * A parser reading a fresh {@link CommonTokenStream} over {@code input}, as
+   * if newly constructed.
+   */
+  public PrologParser acquire(CharStream input) {
+    var parser = idle.poll();
+    if (parser == null)
+      return new PrologParser(new CommonTokenStream(new PrologLexer(input)));
+
+    var lexer = lexer(parser);
+    lexer.setInputStream(input);
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.setTokenStream(new CommonTokenStream(lexer));
+    parser.removeErrorListeners();
+    parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.intermlist = false;
+    parser.inhead = false;
+    return parser;
+  }
+
+  /**
+   * Returns {@code parser} (which must have come from {@link #acquire}) to the
+   * pool; it must not be used again until re-acquired.
+   * <p>
+   * The parser lets go of its input, tokens and parse-trees, which stay
+   * valid for whoever still holds them.
+   */
+  public void release(PrologParser parser) {
+    var lexer = lexer(parser);
+    lexer.setInputStream(null);
+    parser.setTokenStream(new CommonTokenStream(lexer));
+    // the simulator still points at the last tokens and parse-tree; a new one
+    // sharing the grammar's caches holds neither
+    parser.setInterpreter(new ParserATNSimulator(
+          parser,
+          parser.getATN(),
+          PrologParser._decisionToDFA,
+          PrologParser._sharedContextCache));
+    idle.offer(parser);
+  }
+
+  /**
+   * The lexer of a pooled parser.
+   */
+  public static PrologLexer lexer(PrologParser parser) {
+    return (PrologLexer)parser.getTokenStream().getTokenSource();
+  }
+}
@@ -9,6 +9,9 @@ import org.antlr.v4.runtime.tree.pattern.*;
 
 /**
  * Static utilities for the package
+ * <p>
+ * The patterns are compiled once per JVM and shared (they are safe to use from
+ * any thread); the {@code parser} arguments only identify the grammar.
  */
 public class ParserUtils {
 
@@ -16,16 +19,26 @@ public class ParserUtils {
    * A {@link ParseTreePattern} that matches fact definitions.
    */
   public static final ParseTreePattern factPattern(PrologParser parser) {
-    return parser.compileParseTreePattern(
+    return PatternCache.of(parser).pattern(
         "<atom>(<termlist>).",
         PrologParser.RULE_clause);
   }
 
+  /**
+   * A {@link ParseTreePattern} that matches fact definitions with no
+   * arguments.
+   */
+  public static final ParseTreePattern fact0Pattern(PrologParser parser) {
+    return PatternCache.of(parser).pattern(
+        "<atom>.",
+        PrologParser.RULE_clause);
+  }
+
   /**
    * A {@link ParseTreePattern} that matches rule definitions.
    */
   public static final ParseTreePattern rulePattern(PrologParser parser) {
-    return parser.compileParseTreePattern(
+    return PatternCache.of(parser).pattern(
         "<atom>(<termlist>) :- <term>.",
         PrologParser.RULE_clause);
   }
@@ -34,7 +47,7 @@ public class ParserUtils {
    * A {@link ParseTreePattern} that matches rule definitions with no arguments.
    */
   public static final ParseTreePattern rule0Pattern(PrologParser parser) {
-    return parser.compileParseTreePattern(
+    return PatternCache.of(parser).pattern(
         "<atom> :- <term>.",
         PrologParser.RULE_clause);
   }
@@ -43,7 +56,7 @@ public class ParserUtils {
    * A {@link ParseTreePattern} that matches rule invocations.
    */
   public static final ParseTreePattern invocationPattern(PrologParser parser) {
-    return parser.compileParseTreePattern(
+    return PatternCache.of(parser).pattern(
         "<atom>(<termlist>)",
         PrologParser.RULE_base_term);
   }
@@ -52,7 +65,23 @@ public class ParserUtils {
    * The number of lines in a token's {@link Token#getText}.
    */
   public static int countLines(final Token t) {
-    return t.getText().split("\n").length - 1;
+    return countLines(t.getText());
+  }
+
+  /**
+   * The number of lines in {@code text}, counted as for {@link
+   * #countLines(Token)}.
+   */
+  public static int countLines(final String text) {
+    // as text.split("\n").length - 1, which drops trailing empty strings
+    int end = text.length();
+    while (end > 0 && text.charAt(end - 1) == '\n')
+      --end;
+    if (end == 0) return text.isEmpty() ? 0 : -1;
+    int lines = 0;
+    for (int i = 0; i < end; ++i)
+      if (text.charAt(i) == '\n') ++lines;
+    return lines;
   }
 
   /**
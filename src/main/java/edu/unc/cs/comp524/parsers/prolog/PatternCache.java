@@ -0,0 +1,65 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.tree.pattern.*;
+
+/**
+ * Process-wide cache of compiled {@link ParseTreePattern}s and {@link
+ * InvocationMatcher} tables, keyed by the grammar's {@link ATN}.
+ * <p>
+ * Everything is compiled lazily, once per JVM, with a private lexer and parser,
+ * so that cached patterns never keep a caller's input alive. Compiled patterns
+ * are immutable and matching does not touch the lexer or parser, so the cached
+ * objects are safe to share across listeners and threads.
+ *
+ * @see ParserUtils
+ * @see InvocationMatcher#invocationMatchers
+ */
+final class PatternCache {
+  private static final Map<ATN, PatternCache> caches = new ConcurrentHashMap<>();
+
+  private final Map<String, ParseTreePattern> patterns = new ConcurrentHashMap<>();
+  private volatile List<InvocationMatcher> matchers;
+
+  private PatternCache() {}
+
+  /**
+   * The cache for {@code parser}'s grammar.
+   */
+  static PatternCache of(Parser parser) {
+    return caches.computeIfAbsent(parser.getATN(), atn -> new PatternCache());
+  }
+
+  /**
+   * The compiled {@code pattern}, starting from rule {@code rule}.
+   *
+   * @see Parser#compileParseTreePattern
+   */
+  ParseTreePattern pattern(String pattern, int rule) {
+    return patterns.computeIfAbsent(
+        rule + ":" + pattern,
+        key -> new PrologParser(null)
+          .compileParseTreePattern(pattern, rule, new PrologLexer(null)));
+  }
+
+  /**
+   * The {@link InvocationMatcher#invocationMatchers} table.
+   */
+  List<InvocationMatcher> invocationMatchers() {
+    var result = matchers;
+    if (result == null) {
+      synchronized (this) {
+        result = matchers;
+        if (result == null)
+          matchers = result = InvocationMatcher.compileInvocationMatchers(
+              new PrologParser(null),
+              new PrologLexer(null));
+      }
+    }
+    return result;
+  }
+}
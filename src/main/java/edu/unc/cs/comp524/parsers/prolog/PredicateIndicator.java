@@ -0,0 +1,70 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+/**
+ * A predicate indicator, {@code name/arity}: what identifies a predicate,
+ * since Prolog allows several arities per name.
+ */
+public final class PredicateIndicator {
+  private final String name;
+  private final int arity;
+
+  public PredicateIndicator(String name, int arity) {
+    this.name = name;
+    this.arity = arity;
+  }
+
+  /**
+   * The indicator of the predicate {@code r} is a clause of.
+   */
+  public static PredicateIndicator of(Relation r) {
+    return new PredicateIndicator(r.name(), r.arity());
+  }
+
+  /**
+   * The indicator of the predicate {@code ri} invokes.
+   */
+  public static PredicateIndicator of(RuleInvocation ri) {
+    return new PredicateIndicator(ri.name(), ri.arity());
+  }
+
+  /**
+   * Parses {@code name/arity}; the name may itself contain slashes.
+   *
+   * @throws IllegalArgumentException if there is no arity
+   */
+  public static PredicateIndicator parse(String indicator) {
+    int slash = indicator.lastIndexOf('/');
+    try {
+      return new PredicateIndicator(
+          indicator.substring(0, slash),
+          Integer.parseInt(indicator.substring(slash + 1)));
+    } catch (IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException("not name/arity: " + indicator, e);
+    }
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public int arity() {
+    return arity;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof PredicateIndicator)) return false;
+    var pi = (PredicateIndicator)o;
+    return arity == pi.arity && name.equals(pi.name);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * name.hashCode() + arity;
+  }
+
+  @Override
+  public String toString() {
+    return name + "/" + arity;
+  }
+}
@@ -22,6 +22,10 @@ public class PrintComments
     PrologParser parser = new PrologParser(tokens);
     ParseTree tree = parser.p_text();
 
+    var factPattern = ParserUtils.factPattern(parser);
+    var rulePattern = ParserUtils.rulePattern(parser);
+    var rule0Pattern = ParserUtils.rule0Pattern(parser);
+
     ParseTreeWalker.DEFAULT.walk(new PrologListenerWithTokens(tokens) {
 
       @Override
@@ -30,7 +34,7 @@ public class PrintComments
         List<Token> comments = commentsToLeft(ctx);
 
         // get clause name
-        var factMatch = ParserUtils.factPattern(parser).match(ctx);
+        var factMatch = factPattern.match(ctx);
         String clauseName = null;
         if (factMatch.succeeded())
           clauseName = factMatch.get("atom").getText();
@@ -47,8 +51,8 @@ public class PrintComments
       public void enterPredicate(PrologParser.PredicateContext ctx) {
         List<Token> comments = commentsToLeft(ctx);
 
-        var ruleMatch = ParserUtils.rulePattern(parser).match(ctx);
-        var rule0Match = ParserUtils.rule0Pattern(parser).match(ctx);
+        var ruleMatch = rulePattern.match(ctx);
+        var rule0Match = rule0Pattern.match(ctx);
         String clauseName = null;
         if (ruleMatch.succeeded())
           clauseName = ruleMatch.get("atom").getText();
@@ -29,11 +29,11 @@ public class PrintFacts
 
     System.out.println("facts");
     ParserUtils.factPattern(parser).findAll(tree, "//*").stream()
-      .forEach(m -> System.out.println(m.getTree().getText()));
+      .forEach(m -> System.out.println(SourceText.of(m.getTree())));
 
     System.out.println("rules");
     ParserUtils.rulePattern(parser).findAll(tree, "//*").stream()
-      .forEach(m -> System.out.println(m.getTree().getText()));
+      .forEach(m -> System.out.println(SourceText.of(m.getTree())));
 
   }
 }
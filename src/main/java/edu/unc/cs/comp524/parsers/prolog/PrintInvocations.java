@@ -24,6 +24,7 @@ public class PrintInvocations
 
     System.out.println("invocations of rules");
     var applicationPattern = ParserUtils.invocationPattern(parser);
+    var matchers = InvocationMatcher.invocationMatchers(parser, lexer);
     ParseTreeWalker.DEFAULT.walk(new PrologBaseListener() {
       @Override
       public void enterPredicate(PrologParser.PredicateContext ctx) {
@@ -36,7 +37,7 @@ public class PrintInvocations
         applicationPattern.findAll(rhs, "//*").stream()
           .forEach(m -> System.out.println(m.getTree().getText()));
         System.out.println("== known operators");
-        InvocationMatcher.invocationMatchers(parser, lexer)
+        matchers
           .stream()
           .flatMap(i -> i.invocations(rhs).stream())
           .forEach(ri -> System.out.println(ri));
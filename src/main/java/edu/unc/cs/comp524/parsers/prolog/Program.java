@@ -3,7 +3,6 @@ package edu.unc.cs.comp524.parsers.prolog;
 import java.util.*;
 import java.util.stream.*;
 import java.util.function.*;
-import java.util.regex.*;
 
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.*;
@@ -29,6 +28,56 @@ public interface Program {
    */
   public Map<String, List<Relation>> clauses();
 
+  /**
+   * The program's clauses keyed by {@link PredicateIndicator}, so that each
+   * list holds the clauses of exactly one predicate.
+   * <p>
+   * The default implementation groups {@link #relations} at each call.
+   */
+  public default Map<PredicateIndicator, List<Relation>> predicates() {
+    return relations().collect(Collectors.groupingBy(
+          PredicateIndicator::of,
+          LinkedHashMap::new,
+          Collectors.toList()));
+  }
+
+  /**
+   * The clauses of the predicate {@code name}/{@code arity} (empty if there
+   * are none)
+   */
+  public default List<Relation> clausesOf(String name, int arity) {
+    return clausesOf(new PredicateIndicator(name, arity));
+  }
+
+  /**
+   * The clauses of the predicate {@code pi} (empty if there are none)
+   */
+  public default List<Relation> clausesOf(PredicateIndicator pi) {
+    return predicates().getOrDefault(pi, List.of());
+  }
+
+  /**
+   * A {@link SymbolTable} with the functors of all the program's relations and
+   * invocations
+   * <p>
+   * The default implementation builds a new table at each call.
+   */
+  public default SymbolTable symbols() {
+    var symbols = new SymbolTable();
+    relations().forEach(r -> r.functor(symbols));
+    invocations(relations()).forEach(ri -> ri.functor(symbols));
+    return symbols;
+  }
+
+  /**
+   * The program's {@link CallGraph}, over the functor ids of {@link #symbols}
+   * <p>
+   * The default implementation builds a new graph at each call.
+   */
+  public default CallGraph callGraph() {
+    return new CallGraph(this);
+  }
+
   /**
    * The arities of all clauses with a given name
    */
@@ -88,32 +137,83 @@ public interface Program {
       .anyMatch(this::isRecursive);
   }
 
+  /**
+   * The {@link Recursion} in the program's {@link #callGraph}
+   * <p>
+   * The default implementation analyzes the graph anew at each call.
+   */
+  public default Recursion recursion() {
+    return new Recursion(callGraph());
+  }
+
+  /**
+   * The sets of predicates that (mutually) recurse, including those that only
+   * call themselves.
+   *
+   * @see Recursion#recursiveComponents
+   */
+  public default List<Set<PredicateIndicator>> recursiveComponents() {
+    return recursion().recursiveComponents();
+  }
+
+  /**
+   * True iff predicates named {@code a} and {@code b} call each other,
+   * directly or not.
+   *
+   * @see Recursion#isMutuallyRecursive
+   */
+  public default boolean isMutuallyRecursive(String a, String b) {
+    return recursion().isMutuallyRecursive(a, b);
+  }
+
+  /**
+   * How the clauses named {@code name} recurse: not at all, only directly, or
+   * mutually.
+   * <p>
+   * Unlike {@link #isRecursive}, this notices recursion through other
+   * predicates.
+   *
+   * @see Recursion#kind(String)
+   */
+  public default RecursionKind recursionKind(String name) {
+    return recursion().kind(name);
+  }
+
   /**
    * A collection of {@link RuleInvocation}s of rules not defined anywhere in
    * the program.
    * <p>
    * This can be useful when looking at what "standard" library functions were
    * called, or disallowing them altogether.
+   * <p>
+   * The default implementation matches invocations to relations by name and
+   * arity (as the default {@link RuleInvocation#isInvocationOf} does), looking
+   * each up in the keys of {@link #predicates}.
    */
   public default List<RuleInvocation> undefined() {
-    var invocations = invocations(relations());
-    /* collection necessary here to avoid issues with re-using a consumed
-     * stream
-     *
-     * each stream can be consumed exactly once, and we need to use this one
-     * many times (defined is captured in the isInvocationOfAnyRule closure)
-     *
-     * so we collect it and stream it anew at each use
-     */
-    var defined = relations().collect(Collectors.toList());
-    Predicate<RuleInvocation> isInvocationOfAnyRule =
-      ri -> defined.stream().anyMatch(r -> ri.isInvocationOf(r));
+    var defined = predicates().keySet();
     return
-      invocations
-      .filter(isInvocationOfAnyRule.negate())
+      invocations(relations())
+      .filter(ri ->
+          ri.name() == null
+          || !defined.contains(PredicateIndicator.of(ri)))
       .collect(Collectors.toList());
   }
 
+  /**
+   * The predicates invoked but not defined anywhere in the program, with the
+   * number of call sites of each, in order of first invocation.
+   *
+   * @see #undefined
+   */
+  public default Map<PredicateIndicator, Integer> undefinedFunctors() {
+    var counts = new LinkedHashMap<PredicateIndicator, Integer>();
+    for (var ri : undefined())
+      if (ri.name() != null)
+        counts.merge(PredicateIndicator.of(ri), 1, Integer::sum);
+    return counts;
+  }
+
   /**
    * The "depth" of a named clause.
    * <p>
@@ -125,47 +225,29 @@ public interface Program {
    * other invocations of that subrule are ignored (to circumvent infinite loops
    * in the case of recursion, mutual or otherwise) in that particular "path."
    * <p>
-   * The actual depth is the maximum of all possible depths.
+   * The actual depth is the maximum of all possible depths. The clauses of a
+   * (mutually) recursive cycle share one depth: that of the longest way
+   * through each clause of the cycle once and then out of it.
    * <p>
    * This is a stand-in measure for things like cyclomatic complexity and
    * maximum runtime-depth, the latter of which cannot be computed statically
    * (cf. Turing's Halting problem).
+   * <p>
+   * The default implementation computes {@link #depthAll} at each call.
    */
   public default int depth(String name) {
-    var undefined =
-      undefined()
-      .stream()
-      .map(RuleInvocation::name)
-      .collect(Collectors.toSet());
-    return depth(name, new Stack(), undefined);
+    return depthAll().getOrDefault(name, 0);
   }
 
-  private int depth(String name, Stack<String> ignore, Set<String> undefined) {
-    if (undefined.contains(name)) return 1;
-    else if (ignore.contains(name)) return 0;
-    else return
-      clauses()
-      .getOrDefault(name, List.of())
-      .stream()
-      .mapToInt(r -> {
-        if (r instanceof Fact) return 0;
-        else if (r instanceof Rule) {
-          var rule = (Rule)r;
-          ignore.push(name);
-          int depth = 1 +
-            rule.rhs().stream()
-            .map(RuleInvocation::name)
-            .mapToInt(n -> depth(n, ignore, undefined))
-            .max()
-            .orElse(0);
-          ignore.pop();
-          return depth;
-        }
-        // shouldn't be the case
-        else return 0;
-      })
-      .max()
-      .orElse(0);
+  /**
+   * The {@link #depth} of every name defined or invoked in the program.
+   * <p>
+   * The default implementation finds them all in time linear in the size of
+   * the program, as longest paths through the strongly-connected components
+   * of the names' invocations.
+   */
+  public default Map<String, Integer> depthAll() {
+    return Depths.of(this);
   }
 
   /**
@@ -174,37 +256,32 @@ public interface Program {
    * The default implementation defines that as "no rules have numeric literals
    * that are not 0, 1, or 2; facts are permitted and encouraged to capture
    * needed numeric constants."
+   *
+   * @see #magicNumbers()
    */
   public default boolean noMagicNumbers() {
-    return
-      rules(relations())
-      .allMatch(r ->
-          r.args()
-          .stream()
-          .map(ParseTree::getText)
-          .flatMap(Program::getAllNums)
-          .allMatch(Program::allowedNumber)
-
-          &&
-
-          r.rhs()
-          .stream()
-          .flatMap(ri -> ri.args().stream())
-          .map(ParseTree::getText)
-          .flatMap(Program::getAllNums)
-          .allMatch(Program::allowedNumber));
-  }
-
-  private static boolean allowedNumber(int i) {
-    return Set.of(0,1,2).contains(i);
-  }
-
-  private static Stream<Integer> getAllNums(String s) {
-    return Pattern.compile("(?:[^_a-zA-Z]|^)(\\d+)(?:[^_a-zA-Z]|$)")
-      .matcher(s)
-      .results()
-      .map(mr -> mr.group(1))
-      .map(Integer::parseInt);
+    return magicNumbers().isEmpty();
+  }
+
+  /**
+   * The numeric literals in rules that are not 0, 1, or 2.
+   *
+   * @see #magicNumbers(Set)
+   */
+  public default List<MagicNumber> magicNumbers() {
+    return magicNumbers(Set.of(0, 1, 2));
+  }
+
+  /**
+   * The numeric literals in rules whose values are not {@code allowed}, with
+   * where each is.
+   * <p>
+   * The default implementation scans the tokens of each rule once: integers
+   * in any base, and floats unless they are allowed whole numbers. Numbers in
+   * quoted atoms, strings and variable names are not literals.
+   */
+  public default List<MagicNumber> magicNumbers(Set<Integer> allowed) {
+    return MagicNumbers.of(this, allowed);
   }
 
   /**
@@ -0,0 +1,225 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.lang.ref.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+/**
+ * An in-memory cache of the {@link Program}s in files, for long-running
+ * processes that ask for the same files again and again.
+ * <p>
+ * An entry is used only while its file has the same modification time and
+ * size as when it was parsed. Entries are weighed by an estimate of the memory
+ * their program retains (a multiple of the file's size, which depends on the
+ * {@link TreeRetention}), and the least recently used are evicted to keep the
+ * total within a budget. With the soft tier, evicted programs are kept behind
+ * {@link SoftReference}s, to be used again if the garbage collector has not
+ * needed the memory.
+ * <p>
+ * All methods are safe to call from any thread. Programs are parsed outside
+ * the cache's lock, so two threads missing on the same file at once may both
+ * parse it.
+ */
+public final class ProgramCache {
+  /**
+   * A cached program, and what its file looked like.
+   */
+  private static final class Entry {
+    final FileTime modified;
+    final long size;
+    final Program program;
+    final long weight;
+
+    Entry(BasicFileAttributes attributes, Program program, long weight) {
+      modified = attributes.lastModifiedTime();
+      size = attributes.size();
+      this.program = program;
+      this.weight = weight;
+    }
+
+    boolean isCurrent(BasicFileAttributes attributes) {
+      return modified.equals(attributes.lastModifiedTime())
+        && size == attributes.size();
+    }
+  }
+
+  /**
+   * An evicted entry, as long as the collector leaves it.
+   */
+  private static final class SoftEntry extends SoftReference<Entry> {
+    final Path path;
+
+    SoftEntry(Path path, Entry entry, ReferenceQueue<Entry> queue) {
+      super(entry, queue);
+      this.path = path;
+    }
+  }
+
+  private final long maxBytes;
+  private final TreeRetention retention;
+  private final boolean softTier;
+
+  // guarded by this
+  private final LinkedHashMap<Path, Entry> entries =
+    new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<Path, SoftEntry> evicted = new HashMap<>();
+  private final ReferenceQueue<Entry> cleared = new ReferenceQueue<>();
+  private long weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * A cache of at most (an estimated) {@code maxBytes} of programs that keep
+   * their parse-trees, with no soft tier.
+   */
+  public ProgramCache(long maxBytes) {
+    this(maxBytes, TreeRetention.RETAIN, false);
+  }
+
+  /**
+   * A cache of at most (an estimated) {@code maxBytes} of programs parsed with
+   * {@code retention}, keeping evicted programs softly if {@code softTier}.
+   */
+  public ProgramCache(long maxBytes, TreeRetention retention, boolean softTier)
+  {
+    if (maxBytes < 0)
+      throw new IllegalArgumentException("negative size: " + maxBytes);
+    this.maxBytes = maxBytes;
+    this.retention = retention;
+    this.softTier = softTier;
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, parsed as by
+   * {@link Programs#parse(Path, TreeRetention)} unless the file is unchanged
+   * since it was last parsed.
+   */
+  public Program get(Path path) throws IOException {
+    var key = path.toAbsolutePath().normalize();
+    var attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    synchronized (this) {
+      var entry = lookup(key, attributes);
+      if (entry != null) {
+        ++hits;
+        return entry.program;
+      }
+      ++misses;
+    }
+
+    var entry = new Entry(
+        attributes,
+        Programs.parse(key, retention),
+        estimate(attributes.size()));
+    synchronized (this) {
+      // unless another thread got there first
+      var current = entries.get(key);
+      if (current != null && current.isCurrent(attributes))
+        return current.program;
+      put(key, entry);
+    }
+    return entry.program;
+  }
+
+  /**
+   * Forgets the program of the file at {@code path}, if any.
+   */
+  public synchronized void invalidate(Path path) {
+    var key = path.toAbsolutePath().normalize();
+    var entry = entries.remove(key);
+    if (entry != null) weight -= entry.weight;
+    evicted.remove(key);
+  }
+
+  /**
+   * The number of {@link #get}s answered from the cache (either tier).
+   */
+  public synchronized long hits() {
+    return hits;
+  }
+
+  /**
+   * The number of {@link #get}s that parsed.
+   */
+  public synchronized long misses() {
+    return misses;
+  }
+
+  /**
+   * The number of programs evicted to keep within the budget.
+   */
+  public synchronized long evictions() {
+    return evictions;
+  }
+
+  /**
+   * The estimated memory held by the (strongly held) programs.
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  /**
+   * The estimated memory retained by a program from a file of {@code size}
+   * bytes.
+   */
+  public long estimate(long size) {
+    // heap per byte of source, roughly measured on typical clauses
+    switch (retention) {
+      case DETACH:
+        return 64 * size;
+      case DETACH_LAZILY:
+        return 384 * size;
+      default:
+        return 512 * size;
+    }
+  }
+
+  // the current entry for key, from either tier; stale entries are dropped
+  private Entry lookup(Path key, BasicFileAttributes attributes) {
+    var entry = entries.get(key);
+    if (entry != null) {
+      if (entry.isCurrent(attributes)) return entry;
+      entries.remove(key);
+      weight -= entry.weight;
+      return null;
+    }
+
+    expunge();
+    var soft = evicted.remove(key);
+    entry = soft == null ? null : soft.get();
+    if (entry == null || !entry.isCurrent(attributes)) return null;
+    put(key, entry);
+    return entry;
+  }
+
+  private void put(Path key, Entry entry) {
+    expunge();
+    var old = entries.put(key, entry);
+    if (old != null) weight -= old.weight;
+    weight += entry.weight;
+
+    var lru = entries.entrySet().iterator();
+    while (weight > maxBytes && lru.hasNext()) {
+      var e = lru.next();
+      lru.remove();
+      weight -= e.getValue().weight;
+      ++evictions;
+      if (softTier)
+        evicted.put(
+            e.getKey(),
+            new SoftEntry(e.getKey(), e.getValue(), cleared));
+    }
+  }
+
+  // forgets the soft entries the collector has cleared
+  private void expunge() {
+    for (Reference<? extends Entry> r; (r = cleared.poll()) != null; ) {
+      var soft = (SoftEntry)r;
+      if (evicted.get(soft.path) == soft)
+        evicted.remove(soft.path);
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.runtime.tree.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
+/**
+ * Static entry points for loading {@link Program}s.
+ * <p>
+ * Parsing happens in two stages: first with the cheaper {@link
+ * PredictionMode#SLL} prediction and a {@link BailErrorStrategy}; only if that
+ * fails is the input re-parsed with the parser's usual (full-LL) prediction and
+ * error handling. A successful first stage produces the same tree as the second
+ * would have, and since the grammar is written so that SLL prediction suffices
+ * for valid Prolog, only inputs with syntax errors need the second stage.
+ * <p>
+ * All methods are safe to call from any thread; parsers are drawn from a
+ * shared {@link ParserPool}.
+ */
+public final class Programs {
+  private static final ParserPool pool = new ParserPool();
+
+  private Programs() {}
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}.
+   *
+   * @see MappedCharStream
+   */
+  public static Program parse(Path path) throws IOException {
+    return parse(new MappedCharStream(path));
+  }
+
+  /**
+   * The {@link Program} in {@code input}.
+   */
+  public static Program parse(CharStream input) {
+    return parse(input, TreeRetention.RETAIN);
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, keeping as much
+   * of the parse-tree as {@code retention} says.
+   */
+  public static Program parse(Path path, TreeRetention retention)
+    throws IOException
+  {
+    return parse(new MappedCharStream(path), retention);
+  }
+
+  /**
+   * The {@link Program} in {@code input}, keeping as much of the parse-tree as
+   * {@code retention} says.
+   */
+  public static Program parse(CharStream input, TreeRetention retention) {
+    return collect(input, retention, null);
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, with its ground
+   * terms hash-consed in {@code interner}.
+   *
+   * @see #parse(CharStream, TreeRetention, TermInterner)
+   */
+  public static Program parse(
+      Path path,
+      TreeRetention retention,
+      TermInterner interner)
+    throws IOException
+  {
+    return parse(new MappedCharStream(path), retention, interner);
+  }
+
+  /**
+   * The {@link Program} in {@code input}, keeping as much of the parse-tree as
+   * {@code retention} says, with the ground {@link Term}s of its relations and
+   * invocations made canonical in {@code interner} (which may be shared
+   * between programs).
+   *
+   * @see RelationCollectorListener#setTermInterner
+   */
+  public static Program parse(
+      CharStream input,
+      TreeRetention retention,
+      TermInterner interner)
+  {
+    return collect(input, retention, Objects.requireNonNull(interner));
+  }
+
+  // interner may be null
+  private static Program collect(
+      CharStream input,
+      TreeRetention retention,
+      TermInterner interner)
+  {
+    var parser = pool.acquire(input);
+    try {
+      var tree = p_text(parser);
+      var collector = new RelationCollectorListener(
+          (BufferedTokenStream)parser.getTokenStream(),
+          ParserPool.lexer(parser),
+          parser);
+      collector.setTreeRetention(retention);
+      collector.setTermInterner(interner);
+      ParseTreeWalker.DEFAULT.walk(collector, tree);
+      return collector.program();
+    } finally {
+      pool.release(parser);
+    }
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, with its syntax
+   * errors collected in {@code diagnostics}.
+   *
+   * @see #parse(CharStream, Diagnostics)
+   */
+  public static Optional<Program> parse(Path path, Diagnostics diagnostics)
+    throws IOException
+  {
+    return parse(new MappedCharStream(path), diagnostics);
+  }
+
+  /**
+   * The {@link Program} in {@code input}, with its syntax errors collected in
+   * {@code diagnostics} rather than printed.
+   *
+   * @return empty if {@code diagnostics}' {@link ErrorPolicy} gave up on the
+   * input
+   */
+  public static Optional<Program> parse(
+      CharStream input,
+      Diagnostics diagnostics)
+  {
+    var parser = pool.acquire(input);
+    var lexer = ParserPool.lexer(parser);
+    parser.removeErrorListeners();
+    parser.addErrorListener(diagnostics);
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(diagnostics);
+    try {
+      var tree = p_text(parser);
+      var collector = new RelationCollectorListener(
+          (BufferedTokenStream)parser.getTokenStream(),
+          lexer,
+          parser);
+      ParseTreeWalker.DEFAULT.walk(collector, tree);
+      return Optional.of(collector.program());
+    } catch (Diagnostics.GaveUp e) {
+      return Optional.empty();
+    } finally {
+      pool.release(parser);
+    }
+  }
+
+  /**
+   * The {@link Program} in each of the files at {@code paths}, parsed
+   * concurrently on the common {@link ForkJoinPool}.
+   *
+   * @see #parseAll(Collection, Executor)
+   */
+  public static Map<Path, Program> parseAll(Collection<Path> paths)
+    throws IOException
+  {
+    return parseAll(paths, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * The {@link Program} in each of the files at {@code paths} (in the same
+   * order), each parsed as by {@link #parse(Path)} on {@code executor}.
+   *
+   * @throws IOException if any of the files cannot be read
+   */
+  public static Map<Path, Program> parseAll(
+      Collection<Path> paths,
+      Executor executor)
+    throws IOException
+  {
+    var futures = new LinkedHashMap<Path, CompletableFuture<Program>>();
+    for (var path : paths)
+      futures.put(path, CompletableFuture.supplyAsync(() -> {
+        try {
+          return parse(path);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, executor));
+
+    var programs = new LinkedHashMap<Path, Program>();
+    try {
+      for (var entry : futures.entrySet())
+        programs.put(entry.getKey(), entry.getValue().join());
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException)
+        throw ((UncheckedIOException)e.getCause()).getCause();
+      throw e;
+    }
+    return programs;
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, loaded with the
+   * ground-fact fast path.
+   *
+   * @see #load(CharStream, Consumer)
+   */
+  public static Program load(Path path) throws IOException {
+    var relations = new ArrayList<Relation>();
+    load(new MappedCharStream(path), relations::add);
+    return new AProgram(relations);
+  }
+
+  /**
+   * Hands each {@link Relation} in {@code input} to {@code sink}, recognizing
+   * simple ground facts (such as {@code edge(a, b).}) without the lexer and
+   * parser.
+   * <p>
+   * The relations are those {@link #parse(CharStream)} would find, except
+   * that the arguments of a fast-path fact are bare {@link TerminalNode}s.
+   * Other clauses are parsed one at a time, so {@code input} must support
+   * seeking backwards.
+   */
+  public static void load(CharStream input, Consumer<? super Relation> sink) {
+    new GroundFactLoader(input, null, sink).run();
+  }
+
+  /**
+   * The {@link Program} in the (UTF-8) file at {@code path}, loaded with the
+   * ground-fact fast path and with its ground terms hash-consed in {@code
+   * interner}.
+   *
+   * @see #load(CharStream, TermInterner, Consumer)
+   */
+  public static Program load(Path path, TermInterner interner)
+    throws IOException
+  {
+    var relations = new ArrayList<Relation>();
+    load(new MappedCharStream(path), interner, relations::add);
+    return new AProgram(relations);
+  }
+
+  /**
+   * As {@link #load(CharStream, Consumer)}, with the ground {@link Term}s of
+   * the relations made canonical in {@code interner} (which may be shared
+   * between programs). The fast-path facts keep only their interned terms and
+   * the positions of their arguments.
+   */
+  public static void load(
+      CharStream input,
+      TermInterner interner,
+      Consumer<? super Relation> sink)
+  {
+    new GroundFactLoader(input, Objects.requireNonNull(interner), sink).run();
+  }
+
+  /**
+   * Hands each {@link Relation} in the (UTF-8) file at {@code path} to {@code
+   * sink}, one clause at a time.
+   *
+   * @see #stream(Reader, Consumer)
+   */
+  public static void stream(Path path, Consumer<? super Relation> sink)
+    throws IOException
+  {
+    try (var input = Files.newBufferedReader(path)) {
+      stream(input, sink);
+    }
+  }
+
+  /**
+   * Hands each {@link Relation} in {@code input} to {@code sink} as soon as its
+   * clause is parsed.
+   * <p>
+   * Only one clause's tokens and parse-tree are held at a time (the {@link
+   * Relation}s still refer to their own clause's tree), so arbitrarily large
+   * inputs can be processed in a fixed amount of memory. Clauses with syntax
+   * errors are skipped without being reported; use {@link #parse(CharStream,
+   * Diagnostics)} to find them.
+   */
+  public static void stream(Reader input, Consumer<? super Relation> sink) {
+    var clauses = new ClauseParser(input, sink);
+    while (clauses.next())
+      ;
+  }
+
+  /**
+   * Two-stage equivalent of {@code parser.p_text()}.
+   */
+  public static PrologParser.P_textContext p_text(PrologParser parser) {
+    return parse(parser, PrologParser::p_text);
+  }
+
+  /**
+   * Two-stage equivalent of {@code rule.apply(parser)}, for any start rule.
+   * <p>
+   * The parser's prediction mode, error strategy and error listeners are the
+   * same afterwards as they were before.
+   */
+  public static <T extends ParserRuleContext> T parse(
+      PrologParser parser,
+      Function<PrologParser, T> rule)
+  {
+    var tokens = parser.getTokenStream();
+    // index() is -1 until the stream has fetched its first token
+    int start = Math.max(tokens.index(), 0);
+    var interpreter = parser.getInterpreter();
+    var mode = interpreter.getPredictionMode();
+    var handler = parser.getErrorHandler();
+    var listeners = new ArrayList<ANTLRErrorListener>(parser.getErrorListeners());
+
+    interpreter.setPredictionMode(PredictionMode.SLL);
+    parser.setErrorHandler(new BailErrorStrategy());
+    parser.removeErrorListeners();
+    try {
+      return rule.apply(parser);
+    } catch (ParseCancellationException e) {
+      // fall back to the second stage
+    } finally {
+      interpreter.setPredictionMode(mode);
+      parser.setErrorHandler(handler);
+      listeners.forEach(parser::addErrorListener);
+    }
+
+    parser.reset();
+    tokens.seek(start);
+    // the bailed-out parse may have stopped inside a termlist or a head
+    parser.intermlist = false;
+    parser.inhead = false;
+    return rule.apply(parser);
+  }
+}
@@ -0,0 +1,114 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+/**
+ * The recursion in a {@link CallGraph}: its strongly-connected components.
+ * <p>
+ * A predicate is recursive iff its component is cyclic, that is, it has other
+ * predicates or the predicate calls itself. Predicates are functors of the
+ * graph; the methods taking names consider the predicates of every arity with
+ * that name. Everything is computed up front, so each query afterwards takes
+ * constant time (in the number of arities sharing a name).
+ *
+ * @see Program#recursion
+ */
+public final class Recursion {
+  private final CallGraph graph;
+  private final Components components;
+  private final Map<String, int[]> functors = new HashMap<>();
+  private final List<Set<PredicateIndicator>> recursive = new ArrayList<>();
+
+  public Recursion(CallGraph graph) {
+    this.graph = graph;
+    int nodes = graph.nodes();
+    var start = new int[nodes + 1];
+    var targets = new int[graph.edges()];
+    for (int f = 0; f < nodes; ++f) {
+      start[f + 1] = start[f];
+      for (int i = 0; i < graph.fanOut(f); ++i)
+        targets[start[f + 1]++] = graph.target(graph.outEdge(f, i));
+    }
+    components = new Components(nodes, start, targets);
+
+    var symbols = graph.symbols();
+    for (int f = 0; f < nodes; ++f)
+      functors.merge(
+          symbols.functorName(f),
+          new int[] {f},
+          (a, b) -> {
+            var both = Arrays.copyOf(a, a.length + 1);
+            both[a.length] = b[0];
+            return both;
+          });
+
+    for (int c = 0; c < components.count(); ++c) {
+      if (!components.isCyclic(c)) continue;
+      var predicates = new LinkedHashSet<PredicateIndicator>();
+      for (int i = 0; i < components.size(c); ++i) {
+        int f = components.member(c, i);
+        predicates.add(new PredicateIndicator(
+              symbols.functorName(f),
+              symbols.functorArity(f)));
+      }
+      recursive.add(Collections.unmodifiableSet(predicates));
+    }
+  }
+
+  /**
+   * The graph analyzed.
+   */
+  public CallGraph graph() {
+    return graph;
+  }
+
+  /**
+   * The component of functor {@code f}; two functors are in one component iff
+   * each leads to the other. Functors with no edges are alone in theirs.
+   */
+  public int component(int f) {
+    return components.component(f);
+  }
+
+  /**
+   * How functor {@code f} recurses.
+   */
+  public RecursionKind kind(int f) {
+    int c = components.component(f);
+    if (!components.isCyclic(c)) return RecursionKind.NONE;
+    return components.size(c) > 1
+      ? RecursionKind.MUTUAL
+      : RecursionKind.DIRECT;
+  }
+
+  /**
+   * How the predicates named {@code name} recurse: the most involved of their
+   * kinds, {@link RecursionKind#MUTUAL} before {@link RecursionKind#DIRECT}.
+   */
+  public RecursionKind kind(String name) {
+    var kind = RecursionKind.NONE;
+    for (int f : functors.getOrDefault(name, new int[0]))
+      if (kind(f).compareTo(kind) > 0) kind = kind(f);
+    return kind;
+  }
+
+  /**
+   * True iff two different predicates, one named {@code a} and one named
+   * {@code b}, are in the same cycle.
+   */
+  public boolean isMutuallyRecursive(String a, String b) {
+    var none = new int[0];
+    for (int f : functors.getOrDefault(a, none))
+      for (int g : functors.getOrDefault(b, none))
+        if (f != g && component(f) == component(g)) return true;
+    return false;
+  }
+
+  /**
+   * The cyclic components, as the predicates in each, with callees' components
+   * before their callers'.
+   */
+  public List<Set<PredicateIndicator>> recursiveComponents() {
+    return Collections.unmodifiableList(recursive);
+  }
+}
@@ -0,0 +1,24 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+/**
+ * How a predicate recurses.
+ *
+ * @see Program#recursionKind
+ */
+public enum RecursionKind {
+  /**
+   * The predicate never leads back to itself.
+   */
+  NONE,
+
+  /**
+   * The predicate calls itself, and is in no cycle with other predicates.
+   */
+  DIRECT,
+
+  /**
+   * The predicate is in a cycle with other predicates (such as {@code
+   * even}/{@code odd}), whether or not it also calls itself.
+   */
+  MUTUAL
+}
@@ -4,6 +4,8 @@ import java.util.*;
 
 import org.antlr.v4.runtime.tree.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * A prolog relation between arguments. Examples:
  * <p>
@@ -25,6 +27,15 @@ public interface Relation {
    */
   public List<ParseTree> args();
 
+  /**
+   * The arguments of the relation as {@link Term}s
+   * <p>
+   * The default implementation builds them from {@link #args} at each call.
+   */
+  public default List<Term> terms() {
+    return TermBuilder.terms(args());
+  }
+
   /**
    * How many arguments the relation takes
    * <p>
@@ -32,6 +43,26 @@ public interface Relation {
    */
   public int arity();
 
+  /**
+   * The id of the relation's functor (name/arity) in {@code symbols}, which
+   * is added if need be
+   * <p>
+   * The default implementation looks it up at each call.
+   */
+  public default int functor(SymbolTable symbols) {
+    return symbols.functor(name(), arity());
+  }
+
+  /**
+   * The text of the relation's clause as written, through its {@code '.'}
+   * <p>
+   * The default implementation, for relations not parsed from a source,
+   * rebuilds the head from {@link #name} and {@link #args} at each call.
+   */
+  public default CharSequence sourceText() {
+    return SourceText.rebuild(name(), args());
+  }
+
   /**
    * The {@link Comment}, if available
    */
@@ -1,12 +1,15 @@
 package edu.unc.cs.comp524.parsers.prolog;
 
 import java.util.*;
-import java.util.stream.*;
 import java.util.function.*;
+import java.util.stream.*;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
 import org.antlr.v4.runtime.tree.pattern.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * A {@link PrologListener} that collects a {@link Program} during a tree-walk.
  * <p>
@@ -15,53 +18,116 @@ import org.antlr.v4.runtime.tree.pattern.*;
  *<p>
  * Run the listener (e.g., via {@code ParseTreeWalker.DEFAULT.walk}) before
  * calling {@link #program}---otherwise you will get garbage.
+ *<p>
+ * Alternately, give the listener a sink to hand each {@link Relation} to as
+ * soon as it is found; the listener then keeps nothing itself.
  */
 public class RelationCollectorListener extends PrologListenerWithTokens {
-  private final PrologLexer lexer;
-  private final PrologParser parser;
+  /**
+   * The version of what the listener collects; bump it whenever a parse
+   * would give different relations, so that {@link ParseCache} entries from
+   * before are not used.
+   */
+  static final int VERSION = 2;
 
-  private final List<InvocationMatcher> matchers;
+  private final PrologParser parser;
 
   private final ParseTreePattern factPattern;
+  private final ParseTreePattern fact0Pattern;
   private final ParseTreePattern rulePattern;
   private final ParseTreePattern rule0Pattern;
-  private final ParseTreePattern invocationPattern;
 
-  private List<Relation> relations;
+  private final List<Relation> relations;
+  private final Consumer<? super Relation> sink;
+
+  private TreeRetention retention = TreeRetention.RETAIN;
+  private TermInterner interner = null;
+  // built at the first clause, once the tokens are all there
+  private CommentIndex comments;
 
   public RelationCollectorListener(
       BufferedTokenStream tokens,
       PrologLexer lexer,
       PrologParser parser)
+  {
+    this(tokens, parser, null, new ArrayList<>());
+  }
+
+  /**
+   * A listener that hands each {@link Relation} to {@code sink} instead of
+   * collecting it.
+   */
+  public RelationCollectorListener(
+      BufferedTokenStream tokens,
+      PrologParser parser,
+      Consumer<? super Relation> sink)
+  {
+    this(tokens, parser, sink, List.of());
+  }
+
+  // collects into relations unless there is a sink
+  private RelationCollectorListener(
+      BufferedTokenStream tokens,
+      PrologParser parser,
+      Consumer<? super Relation> sink,
+      List<Relation> relations)
   {
     super(tokens);
-    this.lexer = lexer;
     this.parser = parser;
 
-    matchers = InvocationMatcher.invocationMatchers(parser, lexer);
-
     factPattern = ParserUtils.factPattern(parser);
+    fact0Pattern = ParserUtils.fact0Pattern(parser);
     rulePattern = ParserUtils.rulePattern(parser);
     rule0Pattern = ParserUtils.rule0Pattern(parser);
-    invocationPattern = ParserUtils.invocationPattern(parser);
 
-    relations = new ArrayList<>();
+    this.relations = relations;
+    this.sink = sink != null ? sink : relations::add;
   }
 
   /**
-   * The {@link Program} collected during the tree-walk.
+   * The {@link Program} collected during the tree-walk (empty if the listener
+   * has a sink).
    */
   public Program program() {
     return new AProgram(relations);
   }
 
+  /**
+   * Whether the collected {@link Relation}s keep the parse-tree ({@link
+   * TreeRetention#RETAIN} by default); set before the tree-walk.
+   */
+  public void setTreeRetention(TreeRetention retention) {
+    this.retention = retention;
+  }
+
+  /**
+   * Hash-conses the {@link Term}s of the collected {@link Relation}s (and of
+   * their {@link RuleInvocation}s) in {@code interner}; set before the
+   * tree-walk. None by default.
+   * <p>
+   * Detached relations have their terms built during the walk, and keep only
+   * those and the position of each argument, making {@link Relation#args}
+   * again when asked for. Retained ones build and intern their terms when
+   * first asked for.
+   */
+  public void setTermInterner(TermInterner interner) {
+    this.interner = interner;
+  }
+
   @Override
   public void enterFact(PrologParser.FactContext ctx) {
     var factMatch = factPattern.match(ctx);
-    handleFact(
-        factMatch,
-        ctx.term(),
-        comment(ctx));
+    var fact0Match = fact0Pattern.match(ctx);
+    if (factMatch.succeeded())
+      handleFact(
+          factMatch,
+          ctx,
+          comment(ctx));
+    else if (fact0Match.succeeded())
+      handleFact0(
+          fact0Match,
+          ctx,
+          comment(ctx));
   }
 
   @Override
@@ -82,12 +148,38 @@ public class RelationCollectorListener extends PrologListenerWithTokens {
 
   private void handleFact(
       ParseTreeMatch match,
-      PrologParser.TermContext ctx,
+      PrologParser.FactContext ctx,
       Optional<Comment> comment)
   {
     var name = (PrologParser.AtomContext)(match.get("atom"));
     var args = (PrologParser.TermlistContext)(match.get("termlist"));
-    relations.add(new AFact(name, args, comment));
+    if (retention == TreeRetention.RETAIN && interner == null) {
+      accept(new AFact(name, args, comment), ctx);
+    } else if (retention == TreeRetention.RETAIN) {
+      accept(new AFact(
+            name.getText(),
+            List.copyOf(args.term()),
+            interner,
+            comment),
+          ctx);
+    } else {
+      var terms = terms(args.term());
+      accept(new AFact(
+            name.getText(),
+            detached(args.term(), terms),
+            terms,
+            comment),
+          ctx);
+    }
+  }
+
+  private void handleFact0(
+      ParseTreeMatch match,
+      PrologParser.FactContext ctx,
+      Optional<Comment> comment)
+  {
+    var name = (PrologParser.AtomContext)(match.get("atom"));
+    accept(new AFact(name.getText(), List.of(), List.of(), comment), ctx);
   }
 
   private void handleRule(
@@ -98,11 +190,23 @@ public class RelationCollectorListener extends PrologListenerWithTokens {
     var name = (PrologParser.AtomContext)(match.get("atom"));
     var args = (PrologParser.TermlistContext)(match.get("termlist"));
     var body = (PrologParser.TermContext)(match.get("term")); // ctx.term(1);
-    relations.add(new ARule(
-          name,
-          args,
-          comment,
-          invocations(body)));
+    if (retention == TreeRetention.RETAIN && interner == null)
+      accept(new ARule(
+            name,
+            args,
+            comment,
+            invocations(body)),
+          ctx);
+    else if (retention == TreeRetention.RETAIN)
+      accept(new ARule(
+            name.getText(),
+            List.copyOf(args.term()),
+            interner,
+            comment,
+            invocations(body)),
+          ctx);
+    else
+      accept(rule(name.getText(), args.term(), comment, body), ctx);
   }
 
   private void handleRule0(
@@ -112,57 +216,90 @@ public class RelationCollectorListener extends PrologListenerWithTokens {
   {
     var name = (PrologParser.AtomContext)(match.get("atom"));
     var body = (PrologParser.TermContext)(match.get("term")); // ctx.term(1);
-    relations.add(new ARule(
-          name.getText(),
-          List.of(),
+    if (retention == TreeRetention.RETAIN)
+      accept(new ARule(
+            name.getText(),
+            List.of(),
+            comment,
+            invocations(body)),
+          ctx);
+    else
+      accept(rule(name.getText(), List.of(), comment, body), ctx);
+  }
+
+  private void accept(ARelation relation, PrologParser.ClauseContext ctx) {
+    var text = SourceText.of(ctx);
+    relation.setSourceText(
+        retention == TreeRetention.RETAIN ? text : text.detach());
+    sink.accept(relation);
+  }
+
+  // a detached rule
+  private ARule rule(
+      String name,
+      List<? extends ParseTree> args,
+      Optional<Comment> comment,
+      PrologParser.TermContext body)
+  {
+    var terms = terms(args);
+    if (retention == TreeRetention.DETACH_LAZILY)
+      return new ARule(
+          name,
+          detached(args, terms),
+          terms,
           comment,
-          invocations(body)));
+          () -> invocations(body));
+    return new ARule(
+        name,
+        detached(args, terms),
+        terms,
+        comment,
+        invocations(body));
   }
 
-  private Optional<Comment> comment(PrologParser.ClauseContext ctx) {
-    var comments = commentsToLeft(ctx);
-    return
-      (comments != null
-       && areTokensOnNode(ctx, comments))
-      ? Optional.of(new AComment(comments))
-      : Optional.empty();
-  }
-
-  private List<RuleInvocation> matchPattern(
-      ParseTreePattern pattern,
-      PrologParser.TermContext body,
-      Function<ParseTreeMatch, ARuleInvocation> f)
+  private List<Term> terms(List<? extends ParseTree> args) {
+    var terms = TermBuilder.terms(args);
+    return List.copyOf(interner == null ? terms : interner.intern(terms));
+  }
+
+  // with an interner, only the interned terms (and positions) are kept
+  private List<ParseTree> detached(
+      List<? extends ParseTree> args,
+      List<Term> terms)
   {
-    return
-      (pattern
-       .findAll(body, "//*")
-       .stream()
-       .map(m -> {
-         try {
-           return f.apply(m);
-         } catch (ClassCastException e) {
-           return null;
-         }
-       })
-       .filter(r -> r != null)
-       .collect(Collectors.toList()));
+    return interner == null
+      ? Detached.terms(args)
+      : Detached.args(args, terms);
+  }
+
+  private Optional<Comment> comment(PrologParser.ClauseContext ctx) {
+    if (comments == null)
+      comments = new CommentIndex(tokens);
+    var comment = comments.comment(ctx);
+    // the tokens would keep the input alive
+    if (retention == TreeRetention.RETAIN) return comment;
+    return comment.map(c -> new AComment(c.text()));
   }
 
   private List<RuleInvocation> invocations(PrologParser.TermContext body) {
-    return
-      ParserUtils.join(
-          // rule invocations
-          matchPattern(
-            invocationPattern,
-            body,
-            m -> new ARuleInvocation(
-              (PrologParser.AtomContext)m.get("atom"),
-              (PrologParser.TermlistContext)m.get("termlist"))),
-          // InvocationMatchers invocations
-          matchers
-          .stream()
-          .flatMap(m -> m.invocations(body).stream())
-          .collect(Collectors.toList()));
+    var invocations = InvocationCollector.invocations(body);
+    if (retention != TreeRetention.RETAIN)
+      return Detached.invocations(invocations, interner);
+    if (interner == null)
+      return invocations;
+
+    var interned = new ArrayList<RuleInvocation>(invocations.size());
+    for (var invocation : invocations) {
+      var copy = new ARuleInvocation(new AFact(
+            invocation.name(),
+            invocation.args(),
+            interner,
+            Optional.empty()));
+      if (invocation.sourceText() instanceof SourceText)
+        copy.setSourceText((SourceText)invocation.sourceText());
+      interned.add(copy);
+    }
+    return interned;
   }
 
 }
@@ -4,6 +4,8 @@ import java.util.*;
 
 import org.antlr.v4.runtime.tree.*;
 
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+
 /**
  * An invocation of some relation; typically found in {@link Rule#rhs}
  */
@@ -19,6 +21,15 @@ public interface RuleInvocation {
    */
   public List<ParseTree> args();
 
+  /**
+   * The arguments of the relation being invoked as {@link Term}s
+   * <p>
+   * The default implementation builds them from {@link #args} at each call.
+   */
+  public default List<Term> terms() {
+    return TermBuilder.terms(args());
+  }
+
   /**
    * The arity of the relation being invoked
    * <p>
@@ -26,6 +37,26 @@ public interface RuleInvocation {
    */
   public int arity();
 
+  /**
+   * The id of the invoked functor (name/arity) in {@code symbols}, which is
+   * added if need be
+   * <p>
+   * The default implementation looks it up at each call.
+   */
+  public default int functor(SymbolTable symbols) {
+    return symbols.functor(name(), arity());
+  }
+
+  /**
+   * The text of the invocation as written
+   * <p>
+   * The default implementation, for invocations not parsed from a source,
+   * rebuilds it from {@link #name} and {@link #args} at each call.
+   */
+  public default CharSequence sourceText() {
+    return SourceText.rebuild(name(), args());
+  }
+
   /**
    * Implementation-defined.
    * <p>
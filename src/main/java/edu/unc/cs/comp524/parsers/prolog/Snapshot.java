@@ -0,0 +1,510 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.math.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+import edu.unc.cs.comp524.parsers.prolog.term.Float;
+
+/**
+ * A binary image of a {@link Program}, to load again without parsing.
+ * <p>
+ * A snapshot keeps what a {@link TreeRetention#DETACH}ed program keeps: the
+ * functors, the text and position of each argument, the {@link Term}s, the
+ * comments, the {@link Rule#rhs} and the {@link Relation#sourceText}. Loading
+ * maps the file into memory and reads only the list of clauses and the
+ * symbols; each {@link Relation} is read the first time anything but its name
+ * and arity is asked of it.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * Snapshot.write(Programs.parse(source), snapshot);
+ * ...
+ * Program program = Snapshot.load(snapshot);
+ * }</pre>
+ * <p>
+ * Implementation notes
+ * <p>
+ * The layout (big-endian) is a header of {@link #MAGIC} and {@link #VERSION},
+ * then the clause records, the symbols and the index (kind, functor and offset
+ * of each clause), and finally the offsets of the symbols and of the index.
+ * The symbols are the atom names, then the functors as atom id and arity,
+ * numbered as {@link Program#symbols} would number them; filling a {@link
+ * SymbolTable} in order gives the same ids. Strings are a byte count followed
+ * by UTF-8. Files are limited to 2 GiB, the most one mapping can hold.
+ */
+public final class Snapshot {
+  /**
+   * The first four bytes of a snapshot: {@code PLSN}.
+   */
+  public static final int MAGIC = 0x504C534E;
+
+  /**
+   * The version of the layout; snapshots of other versions are not loaded.
+   */
+  public static final int VERSION = 2;
+
+  private static final byte FACT = 0;
+  private static final byte RULE = 1;
+
+  private static final byte ATOM = 0;
+  private static final byte VAR = 1;
+  private static final byte INT = 2;
+  private static final byte BIG_INT = 3;
+  private static final byte FLOAT = 4;
+  private static final byte COMPOUND = 5;
+  private static final byte LIST = 6;
+
+  private Snapshot() {}
+
+  /**
+   * Writes {@code program} to the file at {@code path}.
+   */
+  public static void write(Program program, Path path) throws IOException {
+    try (var out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(path), 1 << 16))) {
+      new Writer(out).program(program);
+    }
+  }
+
+  /**
+   * The {@link Program} in the snapshot at {@code path}.
+   *
+   * @throws IOException if the file is not a snapshot of this {@link
+   * #VERSION}, or is truncated or damaged
+   */
+  public static Program load(Path path) throws IOException {
+    ByteBuffer buffer;
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE)
+        throw new IOException(path + ": too large for a snapshot");
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.limit() < 24
+        || buffer.getInt(0) != MAGIC)
+      throw new IOException(path + ": not a program snapshot");
+    if (buffer.getInt(4) != VERSION)
+      throw new IOException(String.format(
+            "%s: snapshot version %d, not %d",
+            path, buffer.getInt(4), VERSION));
+    try {
+      return new Reader(buffer).program();
+    } catch (IOException
+        | BufferUnderflowException
+        | IndexOutOfBoundsException
+        | IllegalArgumentException e)
+    {
+      throw new IOException(path + ": damaged snapshot", e);
+    }
+  }
+
+  /**
+   * Encodes a program, numbering its symbols as they are met.
+   */
+  private static final class Writer {
+    private final DataOutputStream out;
+    private final SymbolTable symbols = new SymbolTable();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void program(Program program) throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      var relations = new ArrayList<Relation>();
+      program.relations().forEach(relations::add);
+      // numbered as AProgram#symbols would
+      for (var r : relations)
+        symbols.functor(r.name(), r.arity());
+      Program.invocations(relations.stream())
+        .forEach(ri -> symbols.functor(ri.name(), ri.arity()));
+      var offsets = new int[relations.size()];
+      for (int i = 0; i < offsets.length; ++i) {
+        offsets[i] = offset();
+        relation(relations.get(i));
+      }
+
+      int symbolsAt = offset();
+      int atoms = symbols.atoms();
+      out.writeInt(atoms);
+      for (int a = 0; a < atoms; ++a)
+        string(symbols.atomName(a));
+      int functors = symbols.functors();
+      out.writeInt(functors);
+      for (int f = 0; f < functors; ++f) {
+        out.writeInt(symbols.functorAtom(f));
+        out.writeInt(symbols.functorArity(f));
+      }
+
+      int indexAt = offset();
+      out.writeInt(offsets.length);
+      for (int i = 0; i < offsets.length; ++i) {
+        var r = relations.get(i);
+        out.writeByte(r instanceof Rule ? RULE : FACT);
+        out.writeInt(symbols.functor(r.name(), r.arity()));
+        out.writeInt(offsets[i]);
+      }
+
+      out.writeLong(symbolsAt);
+      out.writeLong(indexAt);
+      offset();
+    }
+
+    private int offset() throws IOException {
+      // size() sticks at Integer.MAX_VALUE
+      if (out.size() == Integer.MAX_VALUE)
+        throw new IOException("program too large for a snapshot");
+      return out.size();
+    }
+
+    private void relation(Relation r) throws IOException {
+      var comment = r.comment();
+      out.writeBoolean(comment.isPresent());
+      if (comment.isPresent())
+        string(comment.get().text());
+      sourceText(r.sourceText());
+      args(r.args(), r.terms());
+
+      if (r instanceof Rule) {
+        var rhs = ((Rule)r).rhs();
+        out.writeInt(rhs.size());
+        for (var ri : rhs) {
+          out.writeInt(symbols.functor(ri.name(), ri.arity()));
+          sourceText(ri.sourceText());
+          args(ri.args(), ri.terms());
+        }
+      }
+    }
+
+    // only text from a source is kept; the rest is rebuilt when loaded
+    private void sourceText(CharSequence text) throws IOException {
+      out.writeBoolean(text instanceof SourceText);
+      if (text instanceof SourceText) {
+        var source = (SourceText)text;
+        out.writeInt(source.start());
+        out.writeInt(source.stop());
+        out.writeInt(source.line());
+        out.writeInt(source.column());
+        string(source.toString());
+      }
+    }
+
+    private void args(List<ParseTree> args, List<Term> terms)
+      throws IOException
+    {
+      out.writeInt(args.size());
+      for (int i = 0; i < args.size(); ++i) {
+        var token = ((TerminalNode)Detached.term(args.get(i))).getSymbol();
+        out.writeInt(token.getType());
+        out.writeInt(token.getLine());
+        out.writeInt(token.getCharPositionInLine());
+        string(token.getText());
+        term(terms.get(i));
+      }
+    }
+
+    private void term(Term term) throws IOException {
+      if (term instanceof Atom) {
+        out.writeByte(ATOM);
+        out.writeInt(symbols.atom(((Atom)term).name()));
+      } else if (term instanceof Var) {
+        out.writeByte(VAR);
+        out.writeInt(symbols.atom(((Var)term).name()));
+      } else if (term instanceof Int) {
+        var value = ((Int)term).value();
+        if (value.bitLength() < 64) {
+          out.writeByte(INT);
+          out.writeLong(value.longValue());
+        } else {
+          out.writeByte(BIG_INT);
+          var bytes = value.toByteArray();
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+      } else if (term instanceof Float) {
+        out.writeByte(FLOAT);
+        out.writeDouble(((Float)term).value());
+      } else if (term instanceof Compound) {
+        var compound = (Compound)term;
+        out.writeByte(COMPOUND);
+        out.writeInt(symbols.atom(compound.name()));
+        out.writeInt(compound.arity());
+        for (var arg : compound.args())
+          term(arg);
+      } else if (term instanceof PList) {
+        var list = (PList)term;
+        out.writeByte(LIST);
+        out.writeInt(list.elements().size());
+        for (var element : list.elements())
+          term(element);
+        term(list.tail());
+      } else {
+        throw new IllegalArgumentException("unknown term: " + term);
+      }
+    }
+
+    private void string(String s) throws IOException {
+      var bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Decodes a mapped snapshot.
+   */
+  private static final class Reader {
+    private final ByteBuffer buffer;
+    private final SymbolTable symbols = new SymbolTable();
+
+    Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    Program program() throws IOException {
+      // check the footer before trusting it: 8 bytes of header, the index
+      // after the symbols, and 9 bytes for each entry up to the footer
+      int end = buffer.limit() - 16;
+      long symbolsAt = buffer.getLong(end);
+      long indexAt = buffer.getLong(end + 8);
+      if (symbolsAt < 8 || indexAt < symbolsAt + 8 || indexAt > end - 4
+          || indexAt + 4 + 9L * buffer.getInt((int)indexAt) != end)
+        throw new IOException("bad footer");
+
+      var in = at((int)symbolsAt);
+      int atoms = in.getInt();
+      for (int a = 0; a < atoms; ++a)
+        symbols.atom(string(in));
+      int functors = in.getInt();
+      for (int f = 0; f < functors; ++f) {
+        var name = symbols.atomName(in.getInt());
+        symbols.functor(name, in.getInt());
+      }
+
+      if (in.position() != indexAt)
+        throw new IOException("bad symbols");
+
+      in = at((int)indexAt);
+      int count = in.getInt();
+      var relations = new ArrayList<Relation>(count);
+      for (int i = 0; i < count; ++i) {
+        byte kind = in.get();
+        int functor = in.getInt();
+        int offset = in.getInt();
+        if (offset < 8 || offset >= symbolsAt
+            || functor < 0 || functor >= functors)
+          throw new IOException("bad index");
+        relations.add(kind == RULE
+            ? new LazyRule(this, functor, offset)
+            : new LazyFact(this, functor, offset));
+      }
+      return AProgram.withSymbols(relations, symbols);
+    }
+
+    // a cursor of its own, so that relations can be read from any thread
+    private ByteBuffer at(int offset) {
+      var in = buffer.duplicate();
+      in.position(offset);
+      return in;
+    }
+
+    ARelation relation(boolean rule, int functor, int offset) {
+      var in = at(offset);
+      var name = symbols.functorName(functor);
+      var comment = in.get() != 0
+        ? Optional.<Comment>of(new AComment(string(in)))
+        : Optional.<Comment>empty();
+      var sourceText = sourceText(in);
+      var args = new ArrayList<ParseTree>();
+      var terms = new ArrayList<Term>();
+      args(in, args, terms);
+
+      ARelation relation;
+      if (rule) {
+        int rhs = in.position();
+        relation = new ARule(
+            name, args, terms, comment, () -> invocations(at(rhs)));
+      } else {
+        relation = new AFact(name, args, terms, comment);
+      }
+      if (sourceText != null) relation.setSourceText(sourceText);
+      return relation;
+    }
+
+    private List<RuleInvocation> invocations(ByteBuffer in) {
+      int count = in.getInt();
+      var invocations = new ArrayList<RuleInvocation>(count);
+      for (int i = 0; i < count; ++i) {
+        var name = symbols.functorName(in.getInt());
+        var sourceText = sourceText(in);
+        var args = new ArrayList<ParseTree>();
+        var terms = new ArrayList<Term>();
+        args(in, args, terms);
+        var invocation = new ARuleInvocation(name, args, terms);
+        if (sourceText != null) invocation.setSourceText(sourceText);
+        invocations.add(invocation);
+      }
+      return invocations;
+    }
+
+    private SourceText sourceText(ByteBuffer in) {
+      if (in.get() == 0) return null;
+      int start = in.getInt();
+      int stop = in.getInt();
+      int line = in.getInt();
+      int column = in.getInt();
+      return new SourceText(string(in), start, stop, line, column);
+    }
+
+    private void args(ByteBuffer in, List<ParseTree> args, List<Term> terms) {
+      int count = in.getInt();
+      for (int i = 0; i < count; ++i) {
+        int type = in.getInt();
+        int line = in.getInt();
+        int charPositionInLine = in.getInt();
+        var token = new CommonToken(type, string(in));
+        token.setLine(line);
+        token.setCharPositionInLine(charPositionInLine);
+        args.add(new TerminalNodeImpl(token));
+        terms.add(term(in));
+      }
+    }
+
+    private Term term(ByteBuffer in) {
+      byte tag = in.get();
+      switch (tag) {
+        case ATOM: {
+          var name = symbols.atomName(in.getInt());
+          return name.equals("[]") ? Atom.NIL : new Atom(name);
+        }
+        case VAR:
+          return new Var(symbols.atomName(in.getInt()));
+        case INT:
+          return new Int(in.getLong());
+        case BIG_INT: {
+          var bytes = new byte[in.getInt()];
+          in.get(bytes);
+          return new Int(new BigInteger(bytes));
+        }
+        case FLOAT:
+          return new Float(in.getDouble());
+        case COMPOUND: {
+          var name = symbols.atomName(in.getInt());
+          int arity = in.getInt();
+          var args = new ArrayList<Term>(arity);
+          for (int i = 0; i < arity; ++i)
+            args.add(term(in));
+          return new Compound(name, args);
+        }
+        case LIST: {
+          int count = in.getInt();
+          var elements = new ArrayList<Term>(count);
+          for (int i = 0; i < count; ++i)
+            elements.add(term(in));
+          return new PList(elements, term(in));
+        }
+        default:
+          throw new IllegalStateException("bad term tag " + tag);
+      }
+    }
+
+    private static String string(ByteBuffer in) {
+      int length = in.getInt();
+      var bytes = in.slice();
+      bytes.limit(length);
+      in.position(in.position() + length);
+      return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+  }
+
+  /**
+   * A clause of a snapshot, read when first needed.
+   */
+  private abstract static class Lazy implements Relation {
+    private final Reader reader;
+    private final int functor;
+    private final int offset;
+    private final Memo<ARelation> relation;
+
+    Lazy(Reader reader, int functor, int offset) {
+      this.reader = reader;
+      this.functor = functor;
+      this.offset = offset;
+      relation = new Memo<>(() ->
+          reader.relation(this instanceof Rule, functor, offset));
+    }
+
+    final ARelation relation() {
+      return relation.get();
+    }
+
+    @Override
+    public String name() {
+      return reader.symbols.functorName(functor);
+    }
+
+    @Override
+    public List<ParseTree> args() {
+      return relation().args();
+    }
+
+    @Override
+    public List<Term> terms() {
+      return relation().terms();
+    }
+
+    @Override
+    public int arity() {
+      return reader.symbols.functorArity(functor);
+    }
+
+    @Override
+    public int functor(SymbolTable symbols) {
+      return symbols == reader.symbols
+        ? functor
+        : symbols.functor(name(), arity());
+    }
+
+    @Override
+    public CharSequence sourceText() {
+      return relation().sourceText();
+    }
+
+    @Override
+    public Optional<Comment> comment() {
+      return relation().comment();
+    }
+
+    @Override
+    public String toString() {
+      return relation().toString();
+    }
+  }
+
+  private static final class LazyFact extends Lazy implements Fact {
+    LazyFact(Reader reader, int functor, int offset) {
+      super(reader, functor, offset);
+    }
+  }
+
+  private static final class LazyRule extends Lazy implements Rule {
+    LazyRule(Reader reader, int functor, int offset) {
+      super(reader, functor, offset);
+    }
+
+    @Override
+    public List<RuleInvocation> rhs() {
+      return ((Rule)relation()).rhs();
+    }
+  }
+}
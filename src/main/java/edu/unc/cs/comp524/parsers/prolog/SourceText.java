@@ -0,0 +1,210 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.runtime.tree.*;
+
+/**
+ * A slice of the input a {@link Program} was parsed from, whitespace and all.
+ * <p>
+ * The slice is only a pair of offsets into the {@link CharStream} until its
+ * characters are asked for; then they are copied out once, as a {@link
+ * String}, and kept. {@link #subSequence} does not copy.
+ * <p>
+ * Text whose input is no longer available (as with {@link Programs#stream}, or
+ * detached tokens) is materialized straight away, from the parse-tree's
+ * tokens. The text of relations that do not keep their parse-tree (see {@link
+ * TreeRetention}) is copied out straight away too, so that it does not keep
+ * the input alive.
+ *
+ * @see Relation#sourceText
+ * @see RuleInvocation#sourceText
+ */
+public final class SourceText implements CharSequence {
+  private final CharStream input;
+  private final int start;
+  private final int stop;
+  private final int line;
+  private final int column;
+  private volatile String text;
+
+  private SourceText(
+      CharStream input, int start, int stop, int line, int column)
+  {
+    this.input = input;
+    this.start = start;
+    this.stop = stop;
+    this.line = line;
+    this.column = column;
+  }
+
+  private SourceText(String text) {
+    this(text, -1, -1, -1, -1);
+  }
+
+  /**
+   * Text already taken from chars {@code start} to {@code stop} of an input,
+   * beginning at {@code line} and {@code column}.
+   */
+  SourceText(String text, int start, int stop, int line, int column) {
+    input = null;
+    this.start = start;
+    this.stop = stop;
+    this.line = line;
+    this.column = column;
+    this.text = text;
+  }
+
+  /**
+   * The chars {@code start} to {@code stop} (inclusive) of {@code input},
+   * which must support {@link CharStream#getText} over them for as long as
+   * the text is in use. Its position is not known.
+   */
+  public static SourceText of(CharStream input, int start, int stop) {
+    return of(input, start, stop, -1, -1);
+  }
+
+  /**
+   * The chars {@code start} to {@code stop} (inclusive) of {@code input}, the
+   * first of which is at {@code line} and {@code column}.
+   *
+   * @see #of(CharStream, int, int)
+   */
+  public static SourceText of(
+      CharStream input, int start, int stop, int line, int column)
+  {
+    if (start < 0 || stop < start - 1)
+      throw new IndexOutOfBoundsException(
+          String.format("chars %d to %d", start, stop));
+    return new SourceText(input, start, stop, line, column);
+  }
+
+  /**
+   * The source of {@code tree}.
+   */
+  public static SourceText of(ParseTree tree) {
+    Token first;
+    Token last;
+    if (tree instanceof TerminalNode) {
+      first = last = ((TerminalNode)tree).getSymbol();
+    } else {
+      var ctx = (ParserRuleContext)tree;
+      first = ctx.getStart();
+      last = ctx.getStop();
+    }
+
+    if (first == null || last == null)
+      return new SourceText(tree.getText());
+    var input = first.getInputStream();
+    int start = first.getStartIndex();
+    int stop = last.getStopIndex();
+    if (input == null
+        || input instanceof UnbufferedCharStream
+        || start < 0
+        || stop < start - 1)
+      return new SourceText(tree.getText());
+    return new SourceText(
+        input, start, stop, first.getLine(), first.getCharPositionInLine());
+  }
+
+  /**
+   * The input this is a slice of, or null if the text has been copied out.
+   */
+  CharStream input() {
+    return input;
+  }
+
+  /**
+   * This text with its characters copied out, so that it no longer refers to
+   * the input.
+   */
+  SourceText detach() {
+    if (input == null) return this;
+    return new SourceText(toString(), start, stop, line, column);
+  }
+
+  /**
+   * {@code name(args...)}, or just {@code name} if there are no args.
+   */
+  static String rebuild(String name, List<ParseTree> args) {
+    if (args.isEmpty()) return name;
+    var text = new StringJoiner(", ", name + "(", ")");
+    for (var arg : args)
+      text.add(of(arg));
+    return text.toString();
+  }
+
+  /**
+   * The offset of the first char in the input, or -1 if not known.
+   */
+  public int start() {
+    return start;
+  }
+
+  /**
+   * The offset of the last char in the input (inclusive), or -1 if not known.
+   */
+  public int stop() {
+    return stop;
+  }
+
+  /**
+   * The line (from 1) of the first char, or -1 if not known.
+   */
+  public int line() {
+    return line;
+  }
+
+  /**
+   * The column (from 0) of the first char, or -1 if not known.
+   */
+  public int column() {
+    return column;
+  }
+
+  @Override
+  public int length() {
+    var text = this.text;
+    return text != null ? text.length() : stop - start + 1;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return toString().charAt(index);
+  }
+
+  @Override
+  public CharSequence subSequence(int from, int to) {
+    if (from < 0 || to > length() || from > to)
+      throw new IndexOutOfBoundsException(
+          String.format("[%d, %d) of %d", from, to, length()));
+    var text = this.text;
+    if (input == null)
+      return text.substring(from, to);
+    // the position of a later slice would take a scan to find
+    return new SourceText(
+        input,
+        start + from,
+        start + to - 1,
+        from == 0 ? line : -1,
+        from == 0 ? column : -1);
+  }
+
+  /**
+   * The text, copied out of the input the first time it is asked for.
+   */
+  @Override
+  public String toString() {
+    var text = this.text;
+    if (text == null) {
+      // streams keep decoding state
+      synchronized (input) {
+        text = input.getText(Interval.of(start, stop));
+      }
+      this.text = text;
+    }
+    return text;
+  }
+}
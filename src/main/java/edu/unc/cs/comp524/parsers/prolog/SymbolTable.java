@@ -0,0 +1,168 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Dense integer ids for atom names and for functors (name/arity pairs).
+ * <p>
+ * Ids are handed out in order from 0 as names and functors are first seen, so
+ * they can index plain arrays. A table may be shared between {@link Program}s
+ * (and threads), in which case the same functor has the same id in all of
+ * them. Looking up ids, names and arities takes no lock; only adding does.
+ *
+ * @see Program#symbols
+ * @see Relation#functor
+ */
+public final class SymbolTable {
+  // the functor ids of one atom, indexed by arity (-1 where there is none);
+  // replaced, never changed, so that readers need no lock
+  private static final class Atom {
+    final int id;
+    volatile int[] functors = {};
+
+    Atom(int id) {
+      this.id = id;
+    }
+
+    int functor(int arity) {
+      var functors = this.functors;
+      return arity >= 0 && arity < functors.length ? functors[arity] : -1;
+    }
+  }
+
+  private final Map<String, Atom> atoms = new ConcurrentHashMap<>();
+
+  // only written under the lock, each count last: a reader that sees a count
+  // sees the entries below it
+  private volatile String[] names = new String[16];
+  private volatile int atomCount = 0;
+  private volatile int[] functorAtoms = new int[16];
+  private volatile int[] functorArities = new int[16];
+  private volatile int functorCount = 0;
+
+  /**
+   * The id of the atom {@code name}, added if need be.
+   */
+  public int atom(String name) {
+    var atom = atoms.get(name);
+    return atom != null ? atom.id : add(name).id;
+  }
+
+  /**
+   * The name of atom {@code id}.
+   */
+  public String atomName(int id) {
+    if (id < 0 || id >= atomCount)
+      throw new IndexOutOfBoundsException("no atom " + id);
+    return names[id];
+  }
+
+  /**
+   * The number of atoms.
+   */
+  public int atoms() {
+    return atomCount;
+  }
+
+  /**
+   * The id of the functor {@code name}/{@code arity}, added if need be.
+   */
+  public int functor(String name, int arity) {
+    var atom = atoms.get(name);
+    if (atom != null) {
+      int id = atom.functor(arity);
+      if (id >= 0) return id;
+    }
+    return add(name, arity);
+  }
+
+  /**
+   * The id of the functor {@code name}/{@code arity}, or -1 if it has none
+   * (the table is not changed).
+   */
+  public int find(String name, int arity) {
+    var atom = atoms.get(name);
+    return atom == null ? -1 : atom.functor(arity);
+  }
+
+  /**
+   * The atom id of the name of functor {@code id}.
+   */
+  public int functorAtom(int id) {
+    checkFunctor(id);
+    return functorAtoms[id];
+  }
+
+  /**
+   * The name of functor {@code id}.
+   */
+  public String functorName(int id) {
+    return atomName(functorAtom(id));
+  }
+
+  /**
+   * The arity of functor {@code id}.
+   */
+  public int functorArity(int id) {
+    checkFunctor(id);
+    return functorArities[id];
+  }
+
+  /**
+   * The number of functors.
+   */
+  public int functors() {
+    return functorCount;
+  }
+
+  /**
+   * Functor {@code id} as {@code name/arity}.
+   */
+  public String functorString(int id) {
+    return functorName(id) + "/" + functorArity(id);
+  }
+
+  private void checkFunctor(int id) {
+    if (id < 0 || id >= functorCount)
+      throw new IndexOutOfBoundsException("no functor " + id);
+  }
+
+  private synchronized Atom add(String name) {
+    var atom = atoms.get(name);
+    if (atom != null) return atom;
+    int id = atomCount;
+    if (id == names.length)
+      names = Arrays.copyOf(names, id * 2);
+    names[id] = name;
+    atomCount = id + 1;
+    atom = new Atom(id);
+    atoms.put(name, atom);
+    return atom;
+  }
+
+  private synchronized int add(String name, int arity) {
+    if (arity < 0)
+      throw new IllegalArgumentException("negative arity: " + arity);
+    var atom = add(name);
+    int id = atom.functor(arity);
+    if (id >= 0) return id;
+
+    id = functorCount;
+    if (id == functorAtoms.length) {
+      functorAtoms = Arrays.copyOf(functorAtoms, id * 2);
+      functorArities = Arrays.copyOf(functorArities, id * 2);
+    }
+    functorAtoms[id] = atom.id;
+    functorArities[id] = arity;
+    functorCount = id + 1;
+
+    var functors = atom.functors;
+    functors = Arrays.copyOf(functors, Math.max(functors.length, arity + 1));
+    for (int a = atom.functors.length; a < functors.length; ++a)
+      functors[a] = -1;
+    functors[arity] = id;
+    atom.functors = functors;
+    return id;
+  }
+}
@@ -0,0 +1,226 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.math.*;
+import java.util.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+import edu.unc.cs.comp524.parsers.prolog.term.Float;
+
+/**
+ * Builds {@link Term}s from {@link PrologParser} parse-trees.
+ * <p>
+ * Operators become {@link Compound}s named by the operator, and a minus sign
+ * directly applied to a number literal makes a negative number, as when Prolog
+ * reads {@code -1}. Double- and back-quoted text becomes an {@link Atom} of
+ * its contents, like single-quoted text. Parts of a tree the parser could not
+ * make sense of become atoms of their text.
+ */
+final class TermBuilder {
+  // the terms built so far, since invocations share subtrees
+  private final Map<ParseTree, Term> built = new IdentityHashMap<>();
+
+  /**
+   * The terms of {@code trees}, built by a new {@link TermBuilder}.
+   */
+  static List<Term> terms(List<? extends ParseTree> trees) {
+    return new TermBuilder().build(trees);
+  }
+
+  List<Term> build(List<? extends ParseTree> trees) {
+    var terms = new ArrayList<Term>(trees.size());
+    for (var tree : trees)
+      terms.add(term(tree));
+    return terms;
+  }
+
+  Term term(ParseTree tree) {
+    if (tree instanceof TerminalNode)
+      return token(((TerminalNode)tree).getSymbol());
+
+    var term = built.get(tree);
+    if (term == null) {
+      term = build((ParserRuleContext)tree);
+      built.put(tree, term);
+    }
+    return term;
+  }
+
+  private Term build(ParserRuleContext ctx) {
+    if (ctx instanceof PrologParser.Braced_termContext)
+      return term(((PrologParser.Braced_termContext)ctx).term());
+    if (ctx instanceof PrologParser.Compound_termContext) {
+      var compound = (PrologParser.Compound_termContext)ctx;
+      var termlist = compound.termlist();
+      if (termlist != null)
+        return new Compound(
+            atom(compound.atom()).name(),
+            build(termlist.term()));
+    }
+    if (ctx instanceof PrologParser.List_termContext) {
+      var termlist = ((PrologParser.List_termContext)ctx).termlist();
+      if (termlist != null)
+        return list(termlist.term());
+    }
+    if (ctx instanceof PrologParser.Curly_bracketed_termContext) {
+      var termlist = ((PrologParser.Curly_bracketed_termContext)ctx).termlist();
+      if (termlist != null)
+        return new Compound("{}", build(termlist.term()));
+    }
+    if (ctx instanceof PrologParser.AtomContext)
+      return atom((PrologParser.AtomContext)ctx);
+    if (ctx instanceof PrologParser.Atom_termContext) {
+      var atom = ((PrologParser.Atom_termContext)ctx).atom();
+      // the lexer takes _ and _x for names
+      if (atom instanceof PrologParser.NameContext
+          && atom.getStart().getText().startsWith("_"))
+        return new Var(atom.getStart().getText());
+    }
+
+    // operator levels, and the single-token alternatives
+    int n = ctx.getChildCount();
+    if (n == 1 && !(ctx.getChild(0) instanceof ErrorNode))
+      return term(ctx.getChild(0));
+    if (n == 2 && isOperator(ctx.getChild(0)))
+      return prefix(ctx.getChild(0).getText(), ctx.getChild(1));
+    if (n == 3 && isOperator(ctx.getChild(1)))
+      return new Compound(
+          ctx.getChild(1).getText(),
+          List.of(term(ctx.getChild(0)), term(ctx.getChild(2))));
+    return new Atom(ctx.getText());
+  }
+
+  private static boolean isOperator(ParseTree tree) {
+    return tree instanceof TerminalNode && !(tree instanceof ErrorNode);
+  }
+
+  private Term prefix(String operator, ParseTree operand) {
+    var arg = term(operand);
+    if (operator.equals("-") && isLiteral(operand)) {
+      if (arg instanceof Int)
+        return new Int(((Int)arg).value().negate());
+      if (arg instanceof Float)
+        return new Float(-((Float)arg).value());
+    }
+    return new Compound(operator, List.of(arg));
+  }
+
+  // a single number token, not in parentheses
+  private static boolean isLiteral(ParseTree tree) {
+    if (tree instanceof TerminalNode) return true;
+    var ctx = (ParserRuleContext)tree;
+    return ctx.getStart() == ctx.getStop();
+  }
+
+  // a list, with a '|' before its tail
+  private Term list(List<PrologParser.TermContext> items) {
+    var elements = build(items);
+    var last = elements.get(elements.size() - 1);
+    Term tail = Atom.NIL;
+    if (last instanceof Compound) {
+      var bar = (Compound)last;
+      if (bar.name().equals("|") && bar.arity() == 2) {
+        elements.set(elements.size() - 1, bar.args().get(0));
+        tail = bar.args().get(1);
+      }
+    }
+    return new PList(elements, tail);
+  }
+
+  private static Atom atom(PrologParser.AtomContext ctx) {
+    if (ctx instanceof PrologParser.Empty_listContext) return Atom.NIL;
+    if (ctx instanceof PrologParser.Empty_bracesContext) return new Atom("{}");
+    if (ctx.getChildCount() != 1 || !isOperator(ctx.getChild(0)))
+      return new Atom(ctx.getText());
+    var token = ((TerminalNode)ctx.getChild(0)).getSymbol();
+    return isQuoted(token)
+      ? new Atom(unquote(token.getText()))
+      : new Atom(token.getText());
+  }
+
+  private static boolean isQuoted(Token token) {
+    int type = token.getType();
+    return type == PrologLexer.QUOTED
+      || type == PrologLexer.DOUBLE_QUOTED_LIST
+      || type == PrologLexer.BACK_QUOTED_STRING;
+  }
+
+  private static Term token(Token token) {
+    var text = token.getText();
+    switch (token.getType()) {
+      case PrologLexer.VARIABLE:
+        return new Var(text);
+      case PrologLexer.LETTER_DIGIT:
+        // as above
+        return text.startsWith("_") ? new Var(text) : new Atom(text);
+      case PrologLexer.DECIMAL:
+        return new Int(new BigInteger(text));
+      case PrologLexer.BINARY:
+        return new Int(new BigInteger(text.substring(2), 2));
+      case PrologLexer.OCTAL:
+        return new Int(new BigInteger(text.substring(2), 8));
+      case PrologLexer.HEX:
+        return new Int(new BigInteger(text.substring(2), 16));
+      case PrologLexer.CHARACTER_CODE_CONSTANT:
+        return new Int(unquote(text.substring(1) + "'").codePointAt(0));
+      case PrologLexer.FLOAT:
+        return new Float(Double.parseDouble(text));
+      default:
+        return isQuoted(token) ? new Atom(unquote(text)) : new Atom(text);
+    }
+  }
+
+  /**
+   * The contents of quoted text, with its escapes and doubled quotes replaced.
+   */
+  static String unquote(String quoted) {
+    char quote = quoted.charAt(0);
+    var text = new StringBuilder();
+    for (int i = 1; i < quoted.length() - 1; ++i) {
+      char c = quoted.charAt(i);
+      if (c == quote) {
+        // doubled
+        ++i;
+      } else if (c == '\\') {
+        char e = quoted.charAt(++i);
+        int end;
+        switch (e) {
+          case 'a': c = 7; break;
+          case 'b': c = '\b'; break;
+          case 'f': c = '\f'; break;
+          case 'n': c = '\n'; break;
+          case 'r': c = '\r'; break;
+          case 't': c = '\t'; break;
+          case 'v': c = 11; break;
+          case '\n': continue;
+          case 'x':
+            end = quoted.indexOf('\\', i);
+            text.appendCodePoint(codePoint(quoted.substring(i + 1, end), 16));
+            i = end;
+            continue;
+          default:
+            if (e >= '0' && e <= '7') {
+              end = quoted.indexOf('\\', i);
+              text.appendCodePoint(codePoint(quoted.substring(i, end), 8));
+              i = end;
+              continue;
+            }
+            // a meta char
+            c = e;
+        }
+      }
+      text.append(c);
+    }
+    return text.toString();
+  }
+
+  // U+FFFD if the digits are not a code point
+  private static int codePoint(String digits, int radix) {
+    var value = new BigInteger(digits, radix);
+    return value.compareTo(BigInteger.valueOf(Character.MAX_CODE_POINT)) <= 0
+      ? value.intValue()
+      : 0xFFFD;
+  }
+}
@@ -0,0 +1,32 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+/**
+ * Whether collected {@link Relation}s keep the parse-tree they came from.
+ * <p>
+ * A parse-tree holds on to its tokens, and through them to the whole input, so
+ * a {@link Program} that keeps its tree typically costs many times the size of
+ * its source. Detached relations instead copy out what the {@link Program} API
+ * needs: names, comments, and each argument as a lone {@link
+ * org.antlr.v4.runtime.tree.TerminalNode} with the argument's text.
+ *
+ * @see RelationCollectorListener#setTreeRetention
+ */
+public enum TreeRetention {
+  /**
+   * Arguments are the parse-tree's own nodes.
+   */
+  RETAIN,
+
+  /**
+   * Arguments are copied out, and each rule's {@link Rule#rhs} is collected up
+   * front; nothing refers to the parse-tree afterwards.
+   */
+  DETACH,
+
+  /**
+   * As {@link #DETACH}, but each rule's {@link Rule#rhs} is collected the first
+   * time it is asked for. Until then, the rule keeps its body (and so the
+   * parse-tree) alive.
+   */
+  DETACH_LAZILY
+}
@@ -3,6 +3,7 @@ package edu.unc.cs.comp524.parsers.prolog.f20.a2;
 import edu.unc.cs.comp524.parsers.prolog.*;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.stream.*;
 
@@ -12,9 +13,8 @@ import org.antlr.v4.runtime.tree.*;
 /**
  * The Fall-2020 Assignment 2 "Grader"
  *<p>
- * A sample program the demonstrates how to use {@link PrologParser} in tandem
- * with {@link RelationCollectorListener} to build a {@link Program} on which
- * methods can be called to generated grades for tests
+ * A sample program the demonstrates how to use {@link Programs} to build a
+ * {@link Program} on which methods can be called to generated grades for tests
  */
 public class PrintRubric {
   public static void main(String[] args)
@@ -25,15 +25,8 @@ public class PrintRubric {
       System.exit(1);
     }
 
-    var input = new ANTLRFileStream(args[0]);
-    var lexer = new PrologLexer(input);
-    var tokens = new CommonTokenStream(lexer);
-    var parser = new PrologParser(tokens);
-    var tree = parser.p_text();
-
-    var collector = new RelationCollectorListener(tokens, lexer, parser);
-    ParseTreeWalker.DEFAULT.walk(collector, tree);
-    var program = collector.program();
+    // many checks over one program
+    var program = new AnalyzedProgram(Programs.parse(Paths.get(args[0])));
 
     // either is or isn't recursive, no degree there
     report("listGivenSafe is recursive",
@@ -52,11 +45,16 @@ public class PrintRubric {
          program.containsRecursive("listGenerateSafeDistancesAndDurations"))
         ? 1 : 0);
 
+    // weighted by the rules without magic numbers
+    var rules = Program.rules(program.relations()).count();
+    var magicRules =
+      program.magicNumbers().stream()
+      .map(MagicNumber::rule)
+      .distinct()
+      .count();
     report("no magic numbers",
         5,
-        // we would need to do more work to determine how many magic numbers
-        // there are and weight accordingly
-        program.noMagicNumbers() ? 1 : 0);
+        rules == 0 ? 1 : (double)(rules - magicRules) / rules);
 
     Set<String> allowed = Set.of(
         "write",
@@ -119,11 +117,11 @@ public class PrintRubric {
 
     // depth report
     // System.err.println("depth report");
-    // program.names().stream()
-    //   .forEach(n -> System.err.println(String.format(
+    // program.depthAll()
+    //   .forEach((n, d) -> System.err.println(String.format(
     //           "%s: %d",
     //           n,
-    //           program.depth(n))));
+    //           d)));
 
     /*
      * here's my depth report, from the above statement:
@@ -173,38 +171,39 @@ public class PrintRubric {
     // one solution might be to weight based on number of total rules, or based
     // on the maximum depth (which is easy to calculate using
     //
-    // program.names().stream().mapInt(program::depth).max();
+    // program.depthAll().values().stream().mapToInt(d -> d).max();
+    var depths = program.depthAll();
     report("givenSizes depth",
         3,
-        program.depth("givenSizes") / 3.0);
+        depths.getOrDefault("givenSizes", 0) / 3.0);
 
     report("givenSafe depth",
         2,
-        program.depth("givenSafe") / 2.0);
+        depths.getOrDefault("givenSafe", 0) / 2.0);
 
     report("derivedSafe depth",
         3,
-        program.depth("derivedSafe") / 3.0);
+        depths.getOrDefault("derivedSafe", 0) / 3.0);
 
     report("interpolatedSafe depth",
         4,
-        program.depth("interpolatedSafe") / 4.0);
+        depths.getOrDefault("interpolatedSafe", 0) / 4.0);
 
     report("generateSafeDistancesAndDurations depth",
         4,
-        program.depth("generateSafeDistancesAndDurations") / 4.0);
+        depths.getOrDefault("generateSafeDistancesAndDurations", 0) / 4.0);
 
     report("listGivenSafe depth",
         3,
-        program.depth("listGivenSafe") / 3.0);
+        depths.getOrDefault("listGivenSafe", 0) / 3.0);
 
     report("printGivenCombinations depth",
         3,
-        program.depth("printGivenCombinations") / 3.0);
+        depths.getOrDefault("printGivenCombinations", 0) / 3.0);
 
     report("listGenerateSafeDistancesAndDurations depth",
         4,
-        program.depth("listGenerateSafeDistancesAndDurations") / 4.0);
+        depths.getOrDefault("listGenerateSafeDistancesAndDurations", 0) / 4.0);
 
     // arity checks: don't worry about these if local checks already does them
     report("givenSizes arity",
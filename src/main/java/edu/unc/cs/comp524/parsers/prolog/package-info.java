@@ -4,7 +4,8 @@
  *<p>
  * The gateway should be considered {@link PrologParser}, {@link
  * RelationCollectorListener}, and {@link Program}. Study the sample programs to
- * see how they can be used together.
+ * see how they can be used together; {@link Programs} wraps the usual
+ * parse-and-collect steps.
  *<p>
  * Then, write your own programs that consume {@link Program} to test for
  * certain aspects of the program-structure.
@@ -0,0 +1,38 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+/**
+ * An atom, such as {@code foo}, {@code 'Foo bar'}, {@code []} or {@code +}.
+ * <p>
+ * The name is the atom's text without quotes or escapes, so {@code 'foo'} and
+ * {@code foo} are the same atom.
+ */
+public final class Atom implements Term {
+  /** The empty list, {@code []} */
+  public static final Atom NIL = new Atom("[]");
+
+  private final String name;
+
+  public Atom(String name) {
+    this.name = name;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Atom && name.equals(((Atom)o).name);
+  }
+
+  @Override
+  public int hashCode() {
+    // String caches its own hash
+    return name.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
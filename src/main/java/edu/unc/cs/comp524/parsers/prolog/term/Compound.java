@@ -0,0 +1,52 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+import java.util.*;
+
+/**
+ * A compound term, such as {@code foo(X, 1)}; operators are compounds too, so
+ * {@code X - 1} is {@code -(X, 1)}.
+ */
+public final class Compound implements Term {
+  private final String name;
+  private final List<Term> args;
+  private final int hash;
+
+  public Compound(String name, List<Term> args) {
+    this.name = name;
+    this.args = List.copyOf(args);
+    hash = 31 * name.hashCode() + this.args.hashCode();
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public List<Term> args() {
+    return args;
+  }
+
+  public int arity() {
+    return args.size();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Compound)) return false;
+    var c = (Compound)o;
+    return hash == c.hash && name.equals(c.name) && args.equals(c.args);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    var text = new StringJoiner(", ", name + "(", ")");
+    for (var arg : args)
+      text.add(arg.toString());
+    return text.toString();
+  }
+}
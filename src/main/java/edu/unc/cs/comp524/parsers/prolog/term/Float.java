@@ -0,0 +1,32 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+/**
+ * A floating-point number, such as {@code 3.14} or {@code 1.0e-3}.
+ */
+public final class Float implements Term {
+  private final double value;
+
+  public Float(double value) {
+    this.value = value;
+  }
+
+  public double value() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Float
+      && Double.compare(value, ((Float)o).value) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return Double.hashCode(value);
+  }
+
+  @Override
+  public String toString() {
+    return Double.toString(value);
+  }
+}
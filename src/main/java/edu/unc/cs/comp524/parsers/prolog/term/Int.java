@@ -0,0 +1,39 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+import java.math.*;
+
+/**
+ * An integer, such as {@code 42}, {@code 0x1F} or {@code 0'a}.
+ */
+public final class Int implements Term {
+  private final BigInteger value;
+  private final int hash;
+
+  public Int(BigInteger value) {
+    this.value = value;
+    hash = value.hashCode();
+  }
+
+  public Int(long value) {
+    this(BigInteger.valueOf(value));
+  }
+
+  public BigInteger value() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Int && value.equals(((Int)o).value);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return value.toString();
+  }
+}
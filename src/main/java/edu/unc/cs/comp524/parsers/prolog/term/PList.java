@@ -0,0 +1,63 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+import java.util.*;
+
+/**
+ * A list written with brackets, such as {@code [a, b]} or {@code [H|T]}.
+ * <p>
+ * The empty list is {@link Atom#NIL} rather than a {@link PList}, which always
+ * has at least one element.
+ */
+public final class PList implements Term {
+  private final List<Term> elements;
+  private final Term tail;
+  private final int hash;
+
+  /**
+   * The list of {@code elements} followed by {@code tail}, which is {@link
+   * Atom#NIL} for a proper list.
+   */
+  public PList(List<Term> elements, Term tail) {
+    if (elements.isEmpty())
+      throw new IllegalArgumentException("a PList needs an element");
+    this.elements = List.copyOf(elements);
+    this.tail = tail;
+    hash = 31 * this.elements.hashCode() + tail.hashCode();
+  }
+
+  public List<Term> elements() {
+    return elements;
+  }
+
+  public Term tail() {
+    return tail;
+  }
+
+  /**
+   * True iff the list ends in {@code []}.
+   */
+  public boolean isProper() {
+    return tail.equals(Atom.NIL);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof PList)) return false;
+    var l = (PList)o;
+    return hash == l.hash && elements.equals(l.elements) && tail.equals(l.tail);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    var text = new StringJoiner(", ", "[", "");
+    for (var element : elements)
+      text.add(element.toString());
+    return text + (isProper() ? "]" : "|" + tail + "]");
+  }
+}
@@ -0,0 +1,8 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+/**
+ * A Prolog term: one of {@link Atom}, {@link Var}, {@link Int}, {@link Float},
+ * {@link Compound} or {@link PList}.
+ */
+public interface Term {
+}
@@ -0,0 +1,102 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Canonical instances of ground terms (hash-consing).
+ * <p>
+ * {@link #intern} gives one instance for all equal ground terms it is handed,
+ * made of canonical parts, so interned ground terms are equal iff they are the
+ * same object. Terms with variables are not canonical themselves, but share
+ * their ground parts.
+ * <p>
+ * Safe to use from any thread; a table may be shared between {@link
+ * edu.unc.cs.comp524.parsers.prolog.Program}s.
+ *
+ * @see edu.unc.cs.comp524.parsers.prolog.Programs
+ */
+public final class TermInterner {
+  private final ConcurrentMap<Term, Term> canonical =
+    new ConcurrentHashMap<>();
+
+  public TermInterner() {
+    canonical.put(Atom.NIL, Atom.NIL);
+  }
+
+  /**
+   * The canonical instance of {@code term} if it is ground, otherwise an equal
+   * term with canonical ground parts.
+   */
+  public Term intern(Term term) {
+    return isGround(term) ? canonical(term) : share(term);
+  }
+
+  /**
+   * The interned {@code terms}.
+   */
+  public List<Term> intern(List<Term> terms) {
+    var interned = new ArrayList<Term>(terms.size());
+    for (var term : terms)
+      interned.add(intern(term));
+    return interned;
+  }
+
+  /**
+   * The number of canonical instances.
+   */
+  public int size() {
+    return canonical.size();
+  }
+
+  /**
+   * True iff {@code term} has no variables.
+   */
+  public static boolean isGround(Term term) {
+    if (term instanceof Var) return false;
+    if (term instanceof Compound) {
+      for (var arg : ((Compound)term).args())
+        if (!isGround(arg)) return false;
+    } else if (term instanceof PList) {
+      var list = (PList)term;
+      for (var element : list.elements())
+        if (!isGround(element)) return false;
+      return isGround(list.tail());
+    }
+    return true;
+  }
+
+  private Term canonical(Term term) {
+    var found = canonical.get(term);
+    if (found != null) return found;
+
+    var built = term;
+    if (term instanceof Compound) {
+      var compound = (Compound)term;
+      var args = new ArrayList<Term>(compound.arity());
+      for (var arg : compound.args())
+        args.add(canonical(arg));
+      built = new Compound(compound.name(), args);
+    } else if (term instanceof PList) {
+      var list = (PList)term;
+      var elements = new ArrayList<Term>(list.elements().size());
+      for (var element : list.elements())
+        elements.add(canonical(element));
+      built = new PList(elements, canonical(list.tail()));
+    }
+    found = canonical.putIfAbsent(built, built);
+    return found != null ? found : built;
+  }
+
+  private Term share(Term term) {
+    if (term instanceof Compound) {
+      var compound = (Compound)term;
+      return new Compound(compound.name(), intern(compound.args()));
+    }
+    if (term instanceof PList) {
+      var list = (PList)term;
+      return new PList(intern(list.elements()), intern(list.tail()));
+    }
+    return term;
+  }
+}
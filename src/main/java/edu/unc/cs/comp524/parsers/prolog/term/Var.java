@@ -0,0 +1,41 @@
+package edu.unc.cs.comp524.parsers.prolog.term;
+
+/**
+ * A variable, such as {@code X} or {@code _}.
+ * <p>
+ * Variables are equal if their names are; each {@code _} is nonetheless a
+ * distinct variable in Prolog.
+ */
+public final class Var implements Term {
+  private final String name;
+
+  public Var(String name) {
+    this.name = name;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  /**
+   * True iff this is the anonymous variable {@code _}.
+   */
+  public boolean isAnonymous() {
+    return name.equals("_");
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Var && name.equals(((Var)o).name);
+  }
+
+  @Override
+  public int hashCode() {
+    return ~name.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
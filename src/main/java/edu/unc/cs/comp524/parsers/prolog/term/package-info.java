@@ -0,0 +1,9 @@
+/**
+ * An immutable model of Prolog terms, as an alternative to the parse-trees of
+ * {@link edu.unc.cs.comp524.parsers.prolog.Relation#args}.
+ * <p>
+ * Terms compare structurally, and cache their hash codes.
+ *
+ * @see edu.unc.cs.comp524.parsers.prolog.Relation#terms
+ */
+package edu.unc.cs.comp524.parsers.prolog.term;
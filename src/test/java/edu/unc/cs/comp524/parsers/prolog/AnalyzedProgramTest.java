@@ -0,0 +1,99 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class AnalyzedProgramTest {
+  private static final String source = String.join("\n"
+      , "% calls an undefined bar/1, with a magic number"
+      , "caller :- bar(7)."
+      , "caller(X) :- rec(X), X < 100."
+      , "rec(0)."
+      , "rec(X) :- X > 0, XN is X-1, rec(XN)."
+      , "recIndirect(X) :- X > 10, rec(X)."
+      , "even(0)."
+      , "even(X) :- X > 0, XN is X-1, odd(XN)."
+      , "odd(1)."
+      , "odd(X) :- X > 1, XN is X-1, even(XN)."
+      , "");
+
+  private static Program parsed;
+  // only the default methods
+  private static Program plain;
+
+  @BeforeClass
+  public static void setup() {
+    parsed = Programs.parse(new ANTLRInputStream(source));
+    plain = parsed::clauses;
+  }
+
+  @Test
+  public void testSameAnswers() {
+    var analyzed = new AnalyzedProgram(parsed);
+    assertThat(analyzed.predicates(), is(plain.predicates()));
+    assertThat(analyzed.undefined(), is(plain.undefined()));
+    assertThat(analyzed.undefinedFunctors(), is(plain.undefinedFunctors()));
+    assertThat(analyzed.depthAll(), is(plain.depthAll()));
+    assertThat(
+        analyzed.magicNumbers().toString(),
+        is(plain.magicNumbers().toString()));
+    assertThat(analyzed.noMagicNumbers(), is(plain.noMagicNumbers()));
+    assertThat(
+        analyzed.recursiveComponents(),
+        is(plain.recursiveComponents()));
+    for (var name : List.of(
+          "caller", "bar", "rec", "recIndirect", "even", "odd", "dne"))
+    {
+      assertThat(name, analyzed.isRecursive(name), is(plain.isRecursive(name)));
+      assertThat(
+          name,
+          analyzed.containsRecursive(name),
+          is(plain.containsRecursive(name)));
+      assertThat(name, analyzed.depth(name), is(plain.depth(name)));
+      assertThat(
+          name,
+          analyzed.recursionKind(name),
+          is(plain.recursionKind(name)));
+      assertThat(
+          name,
+          analyzed.isMutuallyRecursive(name, "odd"),
+          is(plain.isMutuallyRecursive(name, "odd")));
+    }
+  }
+
+  @Test
+  public void testComputedOnce() throws Exception {
+    var analyzed = new AnalyzedProgram(plain);
+    var pool = Executors.newFixedThreadPool(8);
+    try {
+      var graphs = new ArrayList<Future<CallGraph>>();
+      for (int i = 0; i < 32; ++i)
+        graphs.add(pool.submit(analyzed::callGraph));
+      for (var graph : graphs)
+        assertThat(graph.get(), is(sameInstance(analyzed.callGraph())));
+    } finally {
+      pool.shutdown();
+    }
+    assertThat(analyzed.symbols(), is(sameInstance(analyzed.symbols())));
+    assertThat(analyzed.recursion(), is(sameInstance(analyzed.recursion())));
+    assertThat(analyzed.undefined(), is(sameInstance(analyzed.undefined())));
+    assertThat(analyzed.depthAll(), is(sameInstance(analyzed.depthAll())));
+  }
+
+  @Test
+  public void testSharesIndicesOfProgram() {
+    var analyzed = new AnalyzedProgram(parsed);
+    assertThat(analyzed.symbols(), is(sameInstance(parsed.symbols())));
+    assertThat(analyzed.callGraph(), is(sameInstance(parsed.callGraph())));
+    assertThat(
+        analyzed.callGraph().symbols(),
+        is(sameInstance(analyzed.symbols())));
+    assertThat(analyzed.recursion(), is(sameInstance(parsed.recursion())));
+  }
+}
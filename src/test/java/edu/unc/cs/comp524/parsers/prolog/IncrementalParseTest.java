@@ -0,0 +1,109 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class IncrementalParseTest {
+  // clauses over several lines, with comments (and dots) around them
+  private static final String source = String.join("\n"
+      , "% edits land in, between and across these clauses"
+      , "head(X) :-"
+      , "  body(1), % the clause goes on"
+      , "  tail(X)."
+      , "/* a block comment"
+      , "   with a '.' in it. */"
+      , "other(a). other(b)."
+      , "long(X, Y) :-"
+      , "  X > 0,"
+      , "  /* between goals */ Y is X * 2."
+      , "last('quoted. atom') :- \"str.\" \\= []."
+      , "");
+
+  private static String streamed(String text) {
+    var relations = new ArrayList<Relation>();
+    Programs.stream(new StringReader(text), relations::add);
+    return new AProgram(relations).toString();
+  }
+
+  @Test
+  public void testEditReusesOtherRelations() {
+    var parse = IncrementalParse.of(source);
+    var start = source.indexOf("body(1)");
+    var edited =
+      parse.edit(start, start + "body(1)".length(), "body(2), more");
+
+    assertThat(
+        edited.text(),
+        is(source.replace("body(1)", "body(2), more")));
+    assertThat(edited.program().toString(), is(streamed(edited.text())));
+    assertThat(
+        edited.program().clauses().get("head").get(0),
+        is(not(sameInstance(parse.program().clauses().get("head").get(0)))));
+    for (var name : List.of("other", "long", "last"))
+      assertThat(
+          edited.program().clauses().get(name).get(0),
+          is(sameInstance(parse.program().clauses().get(name).get(0))));
+  }
+
+  @Test
+  public void testEditAcrossClauses() {
+    var parse = IncrementalParse.of(source);
+    var start = source.indexOf("(b)");
+    var end = source.indexOf(" > 0");
+    var edited = parse.edit(start, end, "(X) :- X");
+
+    assertThat(
+        edited.text(),
+        is(source.substring(0, start) + "(X) :- X" + source.substring(end)));
+    assertThat(edited.program().toString(), is(streamed(edited.text())));
+    assertThat(edited.program().clauses().get("long"), is(nullValue()));
+    assertThat(
+        edited.program().clauses().get("last").get(0),
+        is(sameInstance(parse.program().clauses().get("last").get(0))));
+  }
+
+  @Test
+  public void testEditOpensComment() {
+    var parse = IncrementalParse.of(source);
+    // the rest of the text becomes one comment
+    var start = source.indexOf("other(a)");
+    var edited = parse.edit(start, start, "/* ");
+
+    assertThat(edited.program().toString(), is(streamed(edited.text())));
+    assertThat(
+        edited.program().clauses().keySet(),
+        is(Set.of("head")));
+
+    // and closing it again brings the clauses back
+    var reopened = edited.edit(start, start + "/* ".length(), "");
+    assertThat(reopened.text(), is(source));
+    assertThat(
+        reopened.program().toString(),
+        is(parse.program().toString()));
+  }
+
+  @Test
+  public void testSameAsParsingEditedText() {
+    var random = new Random(524);
+    var pieces = List.of(
+        ".", " ", "\n", "%", "/*", "*/", "(", ")", ",", ":-", "'", "X", "f(a)",
+        "g :- h.", "0.5", "");
+    var parse = IncrementalParse.of(source);
+    for (int i = 0; i < 200; ++i) {
+      var text = parse.text();
+      int start = random.nextInt(text.length() + 1);
+      int end = Math.min(text.length(), start + random.nextInt(6));
+      var piece = pieces.get(random.nextInt(pieces.size()));
+      var expected =
+        streamed(text.substring(0, start) + piece + text.substring(end));
+      parse = parse.edit(start, end, piece);
+      assertThat(parse.program().toString(), is(expected));
+      // start over now and then, before the text becomes noise
+      if (i % 25 == 24) parse = IncrementalParse.of(source);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+public class InvocationCollectorTest {
+
+  @Test
+  public void testSameAsMatchers() {
+    var input = new ANTLRInputStream(String.join("\n"
+          , "a(X, Y) :- X > 0, Y is X * 2 + 1 - 3 / 4, b(Y)."
+          , "b(X) :- \\+ c(X) ; X = [H|T], d(H, T)."
+          , "c(X) :- ( X == 1 -> true ; X @< foo(bar, 2) ), X =.. L."
+          , "d(X, Y) :- X mod 2 =:= Y rem 3, - X < + Y, \\ X >= Y ** 2 ^ 3."
+          , "e :- dynamic foo/1, X = a:b:c, Y = $z, catch(e(X), _, fail)."
+          , "f(X) :- X // 2 << 1 >> 1 =\\= X xor 1 /\\ 1 \\/ 0, X \\== 2."
+          , ""));
+    var lexer = new PrologLexer(input);
+    var tokens = new CommonTokenStream(lexer);
+    var parser = new PrologParser(tokens);
+    var tree = parser.p_text();
+
+    var invocationPattern = ParserUtils.invocationPattern(parser);
+    var matchers = InvocationMatcher.invocationMatchers(parser, lexer);
+    var bodies = new ArrayList<PrologParser.TermContext>();
+    ParseTreeWalker.DEFAULT.walk(new PrologBaseListener() {
+      @Override
+      public void enterPredicate(PrologParser.PredicateContext ctx) {
+        bodies.add(ctx.term(1));
+      }
+    }, tree);
+
+    assertThat(bodies.size(), is(6));
+    for (var body : bodies) {
+      var expected = new ArrayList<RuleInvocation>();
+      invocationPattern.findAll(body, "//*").stream()
+        .map(m -> new ARuleInvocation(
+              (PrologParser.AtomContext)m.get("atom"),
+              (PrologParser.TermlistContext)m.get("termlist")))
+        .forEach(expected::add);
+      matchers.stream()
+        .flatMap(m -> m.invocations(body).stream())
+        .forEach(expected::add);
+
+      assertThat(
+          InvocationCollector.invocations(body).toString(),
+          is(expected.toString()));
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.junit.rules.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class MappedCharStreamTest {
+  @org.junit.Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path write(byte[] bytes) throws IOException {
+    var path = folder.newFile().toPath();
+    Files.write(path, bytes);
+    return path;
+  }
+
+  private static String text() {
+    var text = new StringBuilder();
+    for (int i = 0; i < 1000; ++i)
+      text.append(String.format("f%d(a, 'b', \"c\"). %% café ☃ 😀\n", i));
+    return text.toString();
+  }
+
+  @Test
+  public void testSameCharsAsDecoded() throws IOException {
+    var bytes = text().getBytes(StandardCharsets.UTF_8);
+    // a truncated sequence, a stray continuation and an invalid lead byte
+    bytes = Arrays.copyOf(bytes, bytes.length + 4);
+    bytes[bytes.length - 4] = (byte)0xE2;
+    bytes[bytes.length - 3] = (byte)0x98;
+    bytes[bytes.length - 2] = (byte)0x80;
+    bytes[bytes.length - 1] = (byte)0xFF;
+    var expected = new String(bytes, StandardCharsets.UTF_8);
+
+    var stream = new MappedCharStream(write(bytes));
+    assertThat(stream.size(), is(expected.length()));
+    for (int i = 0; i < expected.length(); ++i) {
+      assertThat(stream.LA(1), is((int)expected.charAt(i)));
+      stream.consume();
+    }
+    assertThat(stream.LA(1), is(IntStream.EOF));
+
+    var random = new Random(524);
+    for (int i = 0; i < 1000; ++i) {
+      int a = random.nextInt(expected.length());
+      int b = Math.min(expected.length(), a + random.nextInt(100));
+      stream.seek(a);
+      assertThat(stream.LA(1), is((int)expected.charAt(a)));
+      assertThat(stream.LA(-1), is(a == 0 ? IntStream.EOF : (int)expected.charAt(a - 1)));
+      assertThat(
+          stream.getText(Interval.of(a, b - 1)),
+          is(expected.substring(a, b)));
+    }
+  }
+
+  @Test
+  public void testSameProgram() throws IOException {
+    var text = text();
+    var path = write(text.getBytes(StandardCharsets.UTF_8));
+    assertThat(
+        Programs.parse(path).toString(),
+        is(Programs.parse(new ANTLRInputStream(text)).toString()));
+  }
+}
@@ -0,0 +1,109 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class ParseCacheTest {
+  @org.junit.Rule
+  public org.junit.rules.TemporaryFolder folder =
+    new org.junit.rules.TemporaryFolder();
+
+  private Path write(String name, String text) throws IOException {
+    var path = folder.getRoot().toPath().resolve(name);
+    Files.write(path, text.getBytes("UTF-8"));
+    return path;
+  }
+
+  private static long entries(Path directory) throws IOException {
+    try (var listing = Files.list(directory)) {
+      return listing.count();
+    }
+  }
+
+  @Test
+  public void testHit() throws IOException {
+    var text = "foo(X) :- bar(X), X > 1.\n% a bar\nbar(2).\n";
+    var one = write("one.pl", text);
+    var two = write("two.pl", text);
+    var cache = new ParseCache(
+        folder.getRoot().toPath().resolve("cache"),
+        1 << 20);
+
+    var parsed = cache.parse(one);
+    assertThat(cache.misses(), is(1L));
+    // same bytes, so the same entry
+    var cached = cache.parse(two);
+    assertThat(cache.hits(), is(1L));
+    assertThat(cached.toString(), is(parsed.toString()));
+    assertThat(
+        cached.toString(),
+        is(Programs.parse(
+            new ANTLRInputStream(text),
+            TreeRetention.DETACH).toString()));
+
+    write("one.pl", text + "baz(1).\n");
+    cache.parse(one);
+    assertThat(cache.misses(), is(2L));
+  }
+
+  @Test
+  public void testDamagedEntry() throws IOException {
+    var directory = folder.getRoot().toPath().resolve("cache");
+    var cache = new ParseCache(directory, 1 << 20);
+    var path = write("a.pl", "a(1).\nb(X) :- a(X).\n");
+    var parsed = cache.parse(path);
+    Path entry;
+    try (var listing = Files.list(directory)) {
+      entry = listing.findFirst().get();
+    }
+    var bytes = Files.readAllBytes(entry);
+    Files.write(entry, Arrays.copyOf(bytes, bytes.length - 5));
+
+    // a miss, not a hit that fails later
+    var reparsed = cache.parse(path);
+    assertThat(cache.hits(), is(0L));
+    assertThat(cache.misses(), is(2L));
+    assertThat(reparsed.toString(), is(parsed.toString()));
+    assertThat(Files.size(entry), is((long)bytes.length));
+    cache.parse(path);
+    assertThat(cache.hits(), is(1L));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    var directory = folder.getRoot().toPath().resolve("cache");
+    var cache = new ParseCache(directory, 0);
+    cache.parse(write("a.pl", "a(1).\n"));
+    assertThat(entries(directory), is(0L));
+
+    var sizingDirectory = folder.getRoot().toPath().resolve("sizing");
+    new ParseCache(sizingDirectory, 1 << 20).parse(write("b.pl", "b(1).\n"));
+    long size;
+    try (var listing = Files.list(sizingDirectory)) {
+      size = Files.size(listing.findFirst().get());
+    }
+
+    cache = new ParseCache(directory, 2 * size);
+    var first = write("c.pl", "c(1).\n");
+    cache.parse(first);
+    Thread.sleep(20);
+    cache.parse(write("d.pl", "d(1).\n"));
+    Thread.sleep(20);
+    // a hit makes c the most recently used
+    cache.parse(first);
+    assertThat(cache.hits(), is(1L));
+    Thread.sleep(20);
+    cache.parse(write("e.pl", "e(1).\n"));
+    assertThat(entries(directory), is(2L));
+
+    cache.parse(first);
+    assertThat(cache.hits(), is(2L));
+  }
+}
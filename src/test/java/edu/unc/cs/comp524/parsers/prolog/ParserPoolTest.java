@@ -0,0 +1,35 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.lang.ref.*;
+
+public class ParserPoolTest {
+  @Test
+  public void testReleaseLetsGoOfTheParse() throws Exception {
+    var pool = new ParserPool();
+    var parser = pool.acquire(new ANTLRInputStream(
+          "edge(a, b).\npath(X, Y) :- edge(X, Z), path(Z, Y).\n"));
+    var tree = new WeakReference<>(Programs.p_text(parser));
+    var tokens = new WeakReference<>(parser.getTokenStream());
+    pool.release(parser);
+
+    for (int i = 0; i < 100 && (tree.get() != null || tokens.get() != null);
+        ++i)
+    {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(tree.get(), is(nullValue()));
+    assertThat(tokens.get(), is(nullValue()));
+
+    // and the parser still works
+    assertThat(pool.acquire(new ANTLRInputStream("a(1).\n")), is(parser));
+    assertThat(Programs.p_text(parser).clause().size(), is(1));
+    pool.release(parser);
+  }
+}
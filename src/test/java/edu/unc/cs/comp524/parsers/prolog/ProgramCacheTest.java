@@ -0,0 +1,85 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+
+public class ProgramCacheTest {
+  @org.junit.Rule
+  public org.junit.rules.TemporaryFolder folder =
+    new org.junit.rules.TemporaryFolder();
+
+  private Path write(String name, String text) throws IOException {
+    var path = folder.getRoot().toPath().resolve(name);
+    Files.write(path, text.getBytes("UTF-8"));
+    return path;
+  }
+
+  @Test
+  public void testHitsUntilChanged() throws IOException {
+    var path = write("a.pl", "a(1).\n");
+    var cache = new ProgramCache(1 << 20);
+    var program = cache.get(path);
+    assertThat(cache.get(path), is(sameInstance(program)));
+    assertThat(cache.hits(), is(1L));
+    assertThat(cache.misses(), is(1L));
+    assertThat(cache.weight(), is(cache.estimate(Files.size(path))));
+
+    write("a.pl", "a(1).\na(2).\n");
+    var changed = cache.get(path);
+    assertThat(changed, is(not(sameInstance(program))));
+    assertThat(changed.clauses().get("a").size(), is(2));
+    assertThat(cache.misses(), is(2L));
+
+    // same size, but touched
+    write("a.pl", "a(3).\na(4).\n");
+    Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+    assertThat(cache.get(path), is(not(sameInstance(changed))));
+    assertThat(cache.misses(), is(3L));
+  }
+
+  @Test
+  public void testEvictsToBudget() throws IOException {
+    var a = write("a.pl", "a(1).\n");
+    var b = write("b.pl", "b(1).\n");
+    var c = write("c.pl", "c(1).\n");
+    var budget = 2 * new ProgramCache(0).estimate(Files.size(a));
+    var cache = new ProgramCache(budget);
+    cache.get(a);
+    cache.get(b);
+    // a is now the most recently used, so b goes
+    cache.get(a);
+    cache.get(c);
+    assertThat(cache.evictions(), is(1L));
+    assertThat(cache.weight(), is(budget));
+
+    cache.get(a);
+    cache.get(c);
+    assertThat(cache.hits(), is(3L));
+    cache.get(b);
+    assertThat(cache.misses(), is(4L));
+  }
+
+  @Test
+  public void testSoftTier() throws IOException {
+    var a = write("a.pl", "a(1).\n");
+    var b = write("b.pl", "b(1).\n");
+    var cache = new ProgramCache(0, TreeRetention.DETACH, true);
+    var program = cache.get(a);
+    cache.get(b);
+    assertThat(cache.evictions(), is(2L));
+    assertThat(cache.weight(), is(0L));
+
+    // nothing has needed the memory
+    assertThat(cache.get(a), is(sameInstance(program)));
+    assertThat(cache.hits(), is(1L));
+
+    cache.invalidate(a);
+    cache.get(a);
+    assertThat(cache.misses(), is(3L));
+  }
+}
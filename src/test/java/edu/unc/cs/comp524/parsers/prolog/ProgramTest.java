@@ -8,7 +8,9 @@ import org.junit.*;
 import static org.hamcrest.CoreMatchers.*;
 import org.hamcrest.collection.*;
 
+import java.util.*;
 import java.util.stream.*;
+import java.util.concurrent.*;
 
 public class ProgramTest {
   private static Program program;
@@ -33,14 +35,7 @@ public class ProgramTest {
           , "recN(1, 0)."
           , "recN(X, N) :- N > 0, NN is N-1, recN(X, NN)."
           , ""));
-    var lexer = new PrologLexer(input);
-    var tokens = new CommonTokenStream(lexer);
-    var parser = new PrologParser(tokens);
-    var tree = parser.p_text();
-
-    var collector = new RelationCollectorListener(tokens, lexer, parser);
-    ParseTreeWalker.DEFAULT.walk(collector, tree);
-    program = collector.program();
+    program = Programs.parse(input);
   }
 
   @Test
@@ -76,6 +71,141 @@ public class ProgramTest {
           "baz"));
   }
 
+  @Test
+  public void testPredicates() {
+    assertThat(program.clausesOf("foo", 0).size(), is(1));
+    assertThat(program.clausesOf("foo", 1).size(), is(1));
+    assertThat(program.clausesOf("foo", 2), IsEmptyCollection.empty());
+    assertThat(
+        program.clausesOf(PredicateIndicator.parse("recN/2")),
+        is(program.clauses().get("recN").subList(1, 3)));
+    assertThat(program.predicates().size(), is(10));
+    for (var entry : program.predicates().entrySet())
+      for (var r : entry.getValue())
+        assertThat(PredicateIndicator.of(r), is(entry.getKey()));
+    assertThat(PredicateIndicator.parse("=../2").name(), is("=.."));
+    // in order of first appearance
+    assertThat(
+        program.names(),
+        is(List.of(
+            "fact", "foo", "baz", "rec", "recIndirect", "even", "odd", "recN")));
+    assertThat(
+        new ArrayList<>(program.predicates().keySet()).subList(0, 3),
+        is(List.of(
+            PredicateIndicator.parse("fact/1"),
+            PredicateIndicator.parse("foo/0"),
+            PredicateIndicator.parse("foo/1"))));
+  }
+
+  @Test
+  public void testSymbols() {
+    var symbols = program.symbols();
+    assertThat(program.symbols(), is(sameInstance(symbols)));
+    int foo0 = symbols.find("foo", 0);
+    int foo1 = symbols.find("foo", 1);
+    assertThat(foo0, is(not(foo1)));
+    assertThat(symbols.functorString(foo1), is("foo/1"));
+    assertThat(symbols.functorAtom(foo0), is(symbols.functorAtom(foo1)));
+    assertThat(symbols.find("foo", 2), is(-1));
+
+    var ids = program.relations()
+      .map(r -> r.functor(symbols))
+      .collect(Collectors.toSet());
+    assertThat(ids.size(), is(10));
+    var rules = Program.rules(program.relations()).collect(Collectors.toList());
+    for (var rule : rules)
+      for (var ri : rule.rhs())
+        assertThat(
+            ri.functor(symbols) == rule.functor(symbols),
+            is(ri.isInvocationOf(rule)));
+    for (int id = 0; id < symbols.functors(); ++id)
+      assertThat(
+          symbols.find(symbols.functorName(id), symbols.functorArity(id)),
+          is(id));
+
+    var shared = new SymbolTable();
+    int bar = shared.functor("bar", 1);
+    var other = new AProgram(
+        program.relations().collect(Collectors.toList()),
+        shared);
+    assertThat(other.symbols(), is(sameInstance(shared)));
+    assertThat(
+        program.clauses().get("foo").get(0).functor(shared),
+        is(shared.find("foo", 0)));
+    assertThat(shared.find("bar", 1), is(bar));
+  }
+
+  @Test
+  public void testSymbolTableShared() throws Exception {
+    var symbols = new SymbolTable();
+    var pool = Executors.newFixedThreadPool(8);
+    try {
+      var tasks = new ArrayList<Callable<int[]>>();
+      for (int t = 0; t < 8; ++t)
+        tasks.add(() -> {
+          var ids = new int[1000];
+          for (int i = 0; i < ids.length; ++i) {
+            ids[i] = symbols.functor("f" + i % 100, i / 100);
+            assertThat(symbols.functorName(ids[i]), is("f" + i % 100));
+            assertThat(symbols.functorArity(ids[i]), is(i / 100));
+          }
+          return ids;
+        });
+      var results = pool.invokeAll(tasks);
+      var ids = results.get(0).get();
+      for (var r : results)
+        assertThat(Arrays.equals(r.get(), ids), is(true));
+    } finally {
+      pool.shutdown();
+    }
+    assertThat(symbols.atoms(), is(100));
+    assertThat(symbols.functors(), is(1000));
+    assertThat(symbols.find("f7", 3), is(symbols.functor("f7", 3)));
+    assertThat(symbols.find("f7", 10), is(-1));
+    assertThat(symbols.find("g", 0), is(-1));
+  }
+
+  @Test
+  public void testCallGraph() {
+    var graph = program.callGraph();
+    assertThat(program.callGraph(), is(sameInstance(graph)));
+    var symbols = graph.symbols();
+    int rec = symbols.find("rec", 1);
+    int even = symbols.find("even", 1);
+    int odd = symbols.find("odd", 1);
+    int bar = symbols.find("bar", 1);
+
+    var callees = new HashSet<Integer>();
+    for (int i = 0; i < graph.fanOut(rec); ++i)
+      callees.add(graph.target(graph.outEdge(rec, i)));
+    assertTrue(callees.contains(rec));
+    assertTrue(callees.contains(symbols.find("is", 2)));
+
+    var callers = new HashSet<Integer>();
+    for (int i = 0; i < graph.fanIn(even); ++i)
+      callers.add(graph.source(graph.inEdge(even, i)));
+    assertThat(callers, is(Set.of(odd)));
+    assertTrue(graph.isDefined(even));
+    assertFalse(graph.isDefined(bar));
+    assertThat(graph.fanOut(bar), is(0));
+    assertThat(graph.fanIn(bar), is(1));
+
+    int edges = 0;
+    for (int f = 0; f < graph.nodes(); ++f) {
+      edges += graph.fanIn(f);
+      for (int i = 0; i < graph.fanOut(f); ++i) {
+        int e = graph.outEdge(f, i);
+        assertThat(graph.source(e), is(f));
+        assertThat(graph.clause(e).functor(symbols), is(f));
+        assertThat(graph.site(e).functor(symbols), is(graph.target(e)));
+      }
+    }
+    assertThat(edges, is(graph.edges()));
+    assertThat(
+        graph.edges(),
+        is((int)Program.invocations(program.relations()).count()));
+  }
+
   @Test
   public void testRelationsWithComments() {
     assertThat(program
@@ -107,6 +237,36 @@ public class ProgramTest {
     assertTrue(program.containsRecursive("recN"));
   }
 
+  @Test
+  public void testRecursion() {
+    assertThat(program.recursionKind("fact"), is(RecursionKind.NONE));
+    assertThat(program.recursionKind("recIndirect"), is(RecursionKind.NONE));
+    assertThat(program.recursionKind("rec"), is(RecursionKind.DIRECT));
+    // through recN/2
+    assertThat(program.recursionKind("recN"), is(RecursionKind.DIRECT));
+    assertThat(program.recursionKind("even"), is(RecursionKind.MUTUAL));
+    assertThat(program.recursionKind("odd"), is(RecursionKind.MUTUAL));
+    assertThat(program.recursionKind("nothing"), is(RecursionKind.NONE));
+
+    assertTrue(program.isMutuallyRecursive("even", "odd"));
+    assertTrue(program.isMutuallyRecursive("odd", "even"));
+    assertFalse(program.isMutuallyRecursive("even", "even"));
+    assertFalse(program.isMutuallyRecursive("rec", "recIndirect"));
+    // recN/1 calls recN/2, but not the other way around
+    assertFalse(program.isMutuallyRecursive("recN", "recN"));
+
+    assertThat(
+        Set.copyOf(program.recursiveComponents()),
+        is(Set.of(
+            Set.of(PredicateIndicator.parse("rec/1")),
+            Set.of(PredicateIndicator.parse("recN/2")),
+            Set.of(
+              PredicateIndicator.parse("even/1"),
+              PredicateIndicator.parse("odd/1")))));
+    // computed once
+    assertSame(program.recursion(), program.recursion());
+  }
+
   @Test
   public void testUndefined() {
     assertThat(program
@@ -123,6 +283,24 @@ public class ProgramTest {
 
   }
 
+  @Test
+  public void testUndefinedFunctors() {
+    var undefined = program.undefinedFunctors();
+    assertThat(undefined, is(Map.of(
+            PredicateIndicator.parse(",/2"), 11,
+            PredicateIndicator.parse(">/2"), 6,
+            PredicateIndicator.parse("is/2"), 5,
+            PredicateIndicator.parse("-/2"), 5,
+            PredicateIndicator.parse("bar/1"), 1)));
+    assertThat(
+        undefined.values().stream().mapToInt(Integer::intValue).sum(),
+        is(program.undefined().size()));
+    // in order of first invocation
+    assertThat(
+        undefined.keySet().iterator().next(),
+        is(PredicateIndicator.of(program.undefined().get(0))));
+  }
+
   @Test
   public void testDepth() {
     assertThat(program.depth("fact"), is(0));
@@ -134,6 +312,31 @@ public class ProgramTest {
     assertThat(program.depth("odd"), is(3));
   }
 
+  @Test
+  public void testDepthAll() {
+    var depths = program.depthAll();
+    for (var name : program.names())
+      assertThat(name, depths.get(name), is(program.depth(name)));
+    assertThat(depths.get("bar"), is(1));
+
+    // every predicate calls every later one: exponentially many paths
+    var source = new StringBuilder();
+    int n = 40;
+    for (int i = 0; i < n; ++i) {
+      source.append("p" + i + "(X) :- ");
+      for (int j = i + 1; j < n; ++j)
+        source.append("p" + j + "(X), ");
+      source.append("q(X).\n");
+    }
+    // and the last calls the first
+    source.append("p" + (n - 1) + "(X) :- p0(X).\n");
+    var dense = Programs.parse(new ANTLRInputStream(source.toString()));
+    depths = dense.depthAll();
+    for (int i = 0; i < n; ++i)
+      assertThat(depths.get("p" + i), is(n + 1));
+    assertThat(depths.get("q"), is(1));
+  }
+
   @Test
   public void testNoMagicNumbers() {
     assertTrue(program.noMagicNumbers());
@@ -141,55 +344,54 @@ public class ProgramTest {
     var input = new ANTLRInputStream(String.join("\n"
           , "someRule(123) :- true."
           , ""));
-    var lexer = new PrologLexer(input);
-    var tokens = new CommonTokenStream(lexer);
-    var parser = new PrologParser(tokens);
-    var tree = parser.p_text();
-
-    var collector = new RelationCollectorListener(tokens, lexer, parser);
-    ParseTreeWalker.DEFAULT.walk(collector, tree);
-    var numProgram = collector.program();
+    var numProgram = Programs.parse(input);
     assertFalse(numProgram.noMagicNumbers());
 
     input = new ANTLRInputStream(String.join("\n"
           , "someRule(X) :- otherRule(123)."
           , ""));
-    lexer = new PrologLexer(input);
-    tokens = new CommonTokenStream(lexer);
-    parser = new PrologParser(tokens);
-    tree = parser.p_text();
-
-    collector = new RelationCollectorListener(tokens, lexer, parser);
-    ParseTreeWalker.DEFAULT.walk(collector, tree);
-    numProgram = collector.program();
+    numProgram = Programs.parse(input);
     assertFalse(numProgram.noMagicNumbers());
 
     input = new ANTLRInputStream(String.join("\n"
           , "someRule(X) :- X = [123]."
           , ""));
-    lexer = new PrologLexer(input);
-    tokens = new CommonTokenStream(lexer);
-    parser = new PrologParser(tokens);
-    tree = parser.p_text();
-
-    collector = new RelationCollectorListener(tokens, lexer, parser);
-    ParseTreeWalker.DEFAULT.walk(collector, tree);
-    numProgram = collector.program();
+    numProgram = Programs.parse(input);
     assertFalse(numProgram.noMagicNumbers());
 
     input = new ANTLRInputStream(String.join("\n"
           , "someRule(X1) :- X1 = []."
           , ""));
-    lexer = new PrologLexer(input);
-    tokens = new CommonTokenStream(lexer);
-    parser = new PrologParser(tokens);
-    tree = parser.p_text();
-
-    collector = new RelationCollectorListener(tokens, lexer, parser);
-    ParseTreeWalker.DEFAULT.walk(collector, tree);
-    numProgram = collector.program();
+    numProgram = Programs.parse(input);
     assertTrue(numProgram.noMagicNumbers());
 
   }
 
+  @Test
+  public void testMagicNumbers() {
+    var source = String.join("\n"
+          , "limit(10)."
+          , "small(X) :- X < 3, X > 0."
+          , "big(X) :-"
+          , "  X > 0x10, Y is X * 2.5, Y < 2.0, write('42'), write(X42)."
+          , ""
+          );
+    for (var retention : TreeRetention.values()) {
+      var numProgram =
+        Programs.parse(new ANTLRInputStream(source), retention);
+      var magic = numProgram.magicNumbers();
+      assertThat(
+          magic.stream()
+          .map(m -> String.format("%s %d:%d", m.text(), m.line(), m.column()))
+          .collect(Collectors.toList()),
+          is(List.of("3 2:16", "0x10 4:6", "2.5 4:21")));
+      assertThat(magic.get(0).rule().name(), is("small"));
+      assertFalse(numProgram.noMagicNumbers());
+
+      magic = numProgram.magicNumbers(Set.of(0, 2, 3, 16));
+      assertThat(magic.size(), is(1));
+      assertThat(magic.get(0).text(), is("2.5"));
+    }
+  }
+
 }
@@ -0,0 +1,308 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.tree.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class ProgramsTest {
+  @org.junit.Rule
+  public org.junit.rules.TemporaryFolder folder =
+    new org.junit.rules.TemporaryFolder();
+
+  private static final String source = String.join("\n"
+      , "% a sample program"
+      , ":- dynamic counter/1."
+      , "fact(true, 'quoted atom', \"string\", 0x1F, 3.14)."
+      , "% foo if bar"
+      , "foo :- bar(1)."
+      , "foo(X) :- ( X > 0 -> bar(X) ; \\+ baz(X) ), [H|T] = [X, 2, 3]."
+      , "baz(X) :- X =.. [F|Args], call(F, Args), !."
+      , "/* block"
+      , " * comment */"
+      , "rec(X) :- X > 0, XN is X-1, rec(XN)."
+      , "");
+
+  private static Program fullLL(String text) {
+    var lexer = new PrologLexer(new ANTLRInputStream(text));
+    var tokens = new CommonTokenStream(lexer);
+    var parser = new PrologParser(tokens);
+    // the reference for broken input too, which is reported elsewhere
+    lexer.removeErrorListeners();
+    parser.removeErrorListeners();
+    var tree = parser.p_text();
+
+    var collector = new RelationCollectorListener(tokens, lexer, parser);
+    ParseTreeWalker.DEFAULT.walk(collector, tree);
+    return collector.program();
+  }
+
+  @Test
+  public void testSLLSuffices() {
+    var parser = new PrologParser(new CommonTokenStream(
+          new PrologLexer(new ANTLRInputStream(source))));
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    parser.setErrorHandler(new BailErrorStrategy());
+    assertThat(parser.p_text().clause().size(), is(5));
+  }
+
+  @Test
+  public void testAtomFacts() {
+    var text = "% no args\nfoo.\nfoo(1).\nX.\nbar :- foo.\n";
+    for (var retention : TreeRetention.values()) {
+      var program = Programs.parse(new ANTLRInputStream(text), retention);
+      assertThat(program.arity("foo"), is(List.of(0, 1)));
+      var foo = program.clausesOf("foo", 0).get(0);
+      assertThat(foo, is(instanceOf(Fact.class)));
+      assertThat(foo.args(), is(List.of()));
+      assertThat(foo.comment().get().text(), is("% no args\n"));
+      assertFalse(program.undefined().stream()
+          .anyMatch(ri -> ri.isInvocationOf("foo", 0)));
+    }
+
+    var relations = new ArrayList<Relation>();
+    Programs.stream(new StringReader(text), relations::add);
+    assertThat(
+        new AProgram(relations).toString(),
+        is(Programs.parse(new ANTLRInputStream(text)).toString()));
+  }
+
+  @Test
+  public void testSameAsFullLL() {
+    assertThat(
+        Programs.parse(new ANTLRInputStream(source)).toString(),
+        is(fullLL(source).toString()));
+  }
+
+  @Test
+  public void testFallsBackOnErrors() {
+    var broken = source + "oops(X :- X.\nafter(1).\n";
+    assertThat(
+        Programs.parse(new ANTLRInputStream(broken)).toString(),
+        is(fullLL(broken).toString()));
+  }
+
+  @Test
+  public void testStream() {
+    var text = source + "% trailing comment\n";
+    var relations = new ArrayList<Relation>();
+    Programs.stream(new StringReader(text), relations::add);
+    assertThat(
+        new AProgram(relations).toString(),
+        is(fullLL(text).toString()));
+  }
+
+  @Test
+  public void testLoadSameAsParse() {
+    var text = String.join("\n"
+        , "% edges"
+        , "edge(a, b)."
+        , "edge(b, 'C d')."
+        , ""
+        , "% not adjacent"
+        , ""
+        , "reading(12, 3.4, 5.0e-3, \"x y\")."
+        , "/* block"
+        , " * comment */"
+        , "odd(-1, 0x1F, f(x), [a], 'it''s', _x, X)."
+        , "edge(c,d).edge(d ,e )./* after */"
+        , "path(X, Y) :- edge(X, Y)."
+        , "dyn(dynamic). x(1.5e3). y(a)"
+        , "."
+        , "% trailing");
+    var relations = new ArrayList<Relation>();
+    Programs.load(new ANTLRInputStream(text), relations::add);
+    assertThat(
+        new AProgram(relations).toString(),
+        is(Programs.parse(new ANTLRInputStream(text)).toString()));
+
+    var edge = relations.get(0);
+    assertThat(edge.args().get(1), is(instanceOf(TerminalNode.class)));
+    assertThat(((TerminalNode)edge.args().get(1)).getSymbol().getLine(), is(2));
+
+    // truncated facts are left to the parser
+    for (var truncated : List.of("edge(a, b", "edge(a, b)", "edge(a,")) {
+      relations.clear();
+      Programs.load(new ANTLRInputStream(truncated), relations::add);
+      assertThat(
+          new AProgram(relations).toString(),
+          is(Programs.parse(new ANTLRInputStream(truncated)).toString()));
+    }
+  }
+
+  @Test
+  public void testDiagnostics() {
+    var broken = source
+      + String.join("", Collections.nCopies(50, "oops(X :- X.\n"))
+      + "after(1).\n";
+
+    var all = new Diagnostics(ErrorPolicy.recover(1000));
+    var program = Programs.parse(new ANTLRInputStream(broken), all);
+    assertThat(program.get().toString(), is(fullLL(broken).toString()));
+    assertFalse(all.gaveUp());
+    assertThat(all.list().size(), is(50));
+    var first = all.list().get(0);
+    assertThat(first.line(), is(11));
+    assertThat(first.charPositionInLine(), is(11));
+    assertThat(first.offendingToken(), is(Optional.of(".")));
+    assertThat(first.expected(), hasItem("VARIABLE"));
+
+    var two = new Diagnostics(ErrorPolicy.recover(2));
+    assertFalse(Programs.parse(new ANTLRInputStream(broken), two).isPresent());
+    assertTrue(two.gaveUp());
+    assertThat(
+        two.list().toString(),
+        is(all.list().subList(0, 2).toString()));
+
+    var bail = new Diagnostics(ErrorPolicy.bail());
+    assertFalse(Programs.parse(new ANTLRInputStream(broken), bail).isPresent());
+    assertThat(bail.list().size(), is(1));
+
+    var none = new Diagnostics(ErrorPolicy.bail());
+    assertTrue(Programs.parse(new ANTLRInputStream(source), none).isPresent());
+    assertTrue(none.isEmpty());
+  }
+
+  @Test
+  public void testDetached() {
+    var retained = Programs.parse(new ANTLRInputStream(source));
+    for (var retention : List.of(
+          TreeRetention.DETACH,
+          TreeRetention.DETACH_LAZILY)) {
+      var detached = Programs.parse(new ANTLRInputStream(source), retention);
+      assertThat(detached.toString(), is(retained.toString()));
+
+      var rule = (Rule)detached.clauses().get("rec").get(0);
+      var recursion = rule.rhs().stream()
+        .filter(ri -> ri.isInvocationOf(rule))
+        .findFirst()
+        .get();
+      var arg = (TerminalNode)recursion.args().get(0);
+      assertThat(arg.getText(), is("XN"));
+      assertThat(arg.getParent(), is(nullValue()));
+      assertThat(arg.getSymbol().getInputStream(), is(nullValue()));
+      assertThat(arg.getSymbol().getLine(), is(10));
+      assertThat(rule.rhs(), is(sameInstance(rule.rhs())));
+    }
+  }
+
+  @Test
+  public void testSourceText() {
+    var text = "pair(a,  b).\nrec(X) :-\n  X > 0,  rec( X ).\n";
+    for (var retention : TreeRetention.values()) {
+      var program = Programs.parse(new ANTLRInputStream(text), retention);
+      var rule = (Rule)program.clauses().get("rec").get(0);
+      assertThat(
+          rule.sourceText().toString(),
+          is("rec(X) :-\n  X > 0,  rec( X )."));
+      var invocations = new HashSet<String>();
+      for (var invocation : rule.rhs())
+        invocations.add(invocation.sourceText().toString());
+      assertTrue(invocations.contains("rec( X )"));
+      assertTrue(invocations.contains("X > 0"));
+
+      // only retained trees may keep the input
+      var retained = retention == TreeRetention.RETAIN;
+      assertThat(
+          ((SourceText)rule.sourceText()).input() != null,
+          is(retained));
+      for (var invocation : rule.rhs())
+        assertThat(
+            ((SourceText)invocation.sourceText()).input() != null,
+            is(retained));
+      assertThat(((SourceText)rule.sourceText()).line(), is(2));
+    }
+
+    var loaded = new ArrayList<Relation>();
+    Programs.load(new ANTLRInputStream(text), loaded::add);
+    var pair = loaded.get(0).sourceText();
+    assertThat(pair.toString(), is("pair(a,  b)."));
+    assertThat(pair.subSequence(5, 11).toString(), is("a,  b)"));
+    assertThat(
+        loaded.get(1).sourceText().toString(),
+        is("rec(X) :-\n  X > 0,  rec( X )."));
+
+    var streamed = new ArrayList<Relation>();
+    Programs.stream(new StringReader(text), streamed::add);
+    assertThat(streamed.get(0).sourceText().toString(), is("pair(a,b)."));
+  }
+
+  @Test
+  public void testComments() {
+    var text = String.join("\n"
+        , "/* block"
+        , " * comment */"
+        , "a(1)."
+        , "% gap"
+        , ""
+        , "b(1)."
+        , "% one"
+        , "  % two"
+        , "c(1). /* same line */ d(1)."
+        , "% crlf\r"
+        , "e(1) :- a(1)."
+        , "");
+    var program = Programs.parse(new ANTLRInputStream(text));
+    var comments = new HashMap<String, Optional<String>>();
+    program.relations().forEach(r ->
+        comments.put(r.name(), r.comment().map(Comment::text)));
+    assertThat(comments.get("a"), is(Optional.of("/* block\n * comment */")));
+    assertThat(comments.get("b"), is(Optional.empty()));
+    assertThat(comments.get("c"), is(Optional.of("% one\n% two\n")));
+    assertThat(comments.get("d"), is(Optional.empty()));
+    assertThat(comments.get("e"), is(Optional.of("% crlf\r")));
+
+    // only retained trees keep the tokens of comments
+    for (var retention : TreeRetention.values()) {
+      var a = Programs.parse(new ANTLRInputStream(text), retention)
+        .clauses().get("a").get(0);
+      var comment = (AComment)a.comment().get();
+      assertThat(
+          retention.toString(),
+          comment.tokens() != null,
+          is(retention == TreeRetention.RETAIN));
+      assertThat(comment.text(), is("/* block\n * comment */"));
+    }
+
+    var streamed = new ArrayList<Relation>();
+    Programs.stream(new StringReader(text), streamed::add);
+    assertThat(
+        new AProgram(streamed).toString(),
+        is(program.toString()));
+  }
+
+  @Test
+  public void testParseAll() throws Exception {
+    var paths = new ArrayList<Path>();
+    for (int i = 0; i < 16; ++i) {
+      var path = folder.newFile().toPath();
+      Files.write(path, (source + "file(" + i + ").\n").getBytes());
+      paths.add(path);
+    }
+
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var programs = Programs.parseAll(paths, executor);
+      assertThat(new ArrayList<>(programs.keySet()), is(paths));
+      for (var path : paths)
+        assertThat(
+            programs.get(path).toString(),
+            is(fullLL(new String(Files.readAllBytes(path))).toString()));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = NoSuchFileException.class)
+  public void testParseAllMissingFile() throws Exception {
+    Programs.parseAll(List.of(folder.getRoot().toPath().resolve("missing.pl")));
+  }
+}
@@ -0,0 +1,134 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class SnapshotTest {
+  @org.junit.Rule
+  public org.junit.rules.TemporaryFolder folder =
+    new org.junit.rules.TemporaryFolder();
+
+  private static final String source = String.join("\n"
+      , "% facts"
+      , "fact(true, 'quoted atom', \"string\", 0x1F, 3.14, -2)."
+      , "big(123456789012345678901234567890, [a, b|T], [], {x}, f(g(X), _))."
+      , "ops(X) :- \\+ X == 'it\\'s', X =.. [F|Args], length(Args, 2)."
+      , "/* block"
+      , " * comment */"
+      , "count(N) :-"
+      , "  N > 0, M is N-1, count(M)."
+      , "");
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    var original = Programs.parse(new ANTLRInputStream(source));
+    var path = folder.getRoot().toPath().resolve("program.snapshot");
+    Snapshot.write(original, path);
+    var loaded = Snapshot.load(path);
+
+    var detached = Programs.parse(
+        new ANTLRInputStream(source),
+        TreeRetention.DETACH);
+    assertThat(
+        new HashSet<>(loaded.names()),
+        is(new HashSet<>(original.names())));
+    assertThat(
+        new HashSet<>(loaded.predicates().keySet()),
+        is(new HashSet<>(original.predicates().keySet())));
+    var symbols = loaded.symbols();
+    assertThat(symbols.functors(), is(original.symbols().functors()));
+    for (int f = 0; f < symbols.functors(); ++f)
+      assertThat(
+          symbols.functorString(f),
+          is(original.symbols().functorString(f)));
+    for (var name : original.names())
+      assertThat(
+          loaded.clauses().get(name).toString(),
+          is(detached.clauses().get(name).toString()));
+
+    for (var pi : original.predicates().keySet()) {
+      var expected = original.clausesOf(pi);
+      var actual = loaded.clausesOf(pi);
+      assertThat(actual.size(), is(expected.size()));
+      for (int k = 0; k < expected.size(); ++k) {
+        var e = expected.get(k);
+        var a = actual.get(k);
+        assertThat(a.terms(), is(e.terms()));
+        assertThat(
+            a.comment().map(Comment::text),
+            is(e.comment().map(Comment::text)));
+        assertThat(a.sourceText().toString(), is(e.sourceText().toString()));
+        assertThat(a instanceof Rule, is(e instanceof Rule));
+        if (!(e instanceof Rule)) continue;
+
+        var rhs = ((Rule)e).rhs();
+        var loadedRhs = ((Rule)a).rhs();
+        assertThat(loadedRhs.size(), is(rhs.size()));
+        for (int i = 0; i < rhs.size(); ++i) {
+          assertThat(loadedRhs.get(i).terms(), is(rhs.get(i).terms()));
+          assertThat(
+              loadedRhs.get(i).sourceText().toString(),
+              is(rhs.get(i).sourceText().toString()));
+        }
+      }
+    }
+
+    // positions survive
+    var magic = original.magicNumbers(Set.of());
+    assertThat(loaded.magicNumbers(Set.of()).toString(), is(magic.toString()));
+    var lines = new HashSet<Integer>();
+    for (var m : magic)
+      lines.add(m.line());
+    assertThat(lines, is(Set.of(4, 8)));
+  }
+
+  @Test
+  public void testRejectsOtherVersions() throws IOException {
+    var path = folder.getRoot().toPath().resolve("program.snapshot");
+    Snapshot.write(Programs.parse(new ANTLRInputStream(source)), path);
+    var bytes = Files.readAllBytes(path);
+    ByteBuffer.wrap(bytes).putInt(4, Snapshot.VERSION + 1);
+    Files.write(path, bytes);
+    try {
+      Snapshot.load(path);
+      fail("loaded a snapshot of another version");
+    } catch (IOException e) {
+      assertThat(e.getMessage(), containsString("version"));
+    }
+  }
+
+  @Test
+  public void testRejectsDamaged() throws IOException {
+    var path = folder.getRoot().toPath().resolve("program.snapshot");
+    Snapshot.write(Programs.parse(new ANTLRInputStream(source)), path);
+    var bytes = Files.readAllBytes(path);
+    var damaged = new ArrayList<byte[]>();
+    for (int length : new int[] { 24, bytes.length / 2, bytes.length - 1 })
+      damaged.add(Arrays.copyOf(bytes, length));
+    // footer offsets past the end
+    var footer = bytes.clone();
+    ByteBuffer.wrap(footer).putLong(footer.length - 8, footer.length);
+    damaged.add(footer);
+    footer = bytes.clone();
+    ByteBuffer.wrap(footer).putLong(footer.length - 16, -1);
+    damaged.add(footer);
+
+    for (var d : damaged) {
+      Files.write(path, d);
+      try {
+        Snapshot.load(path);
+        fail("loaded a damaged snapshot of " + d.length + " bytes");
+      } catch (IOException e) {
+        assertThat(e.getMessage(), containsString("damaged"));
+      }
+    }
+  }
+}
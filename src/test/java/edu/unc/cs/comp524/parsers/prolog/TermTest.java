@@ -0,0 +1,195 @@
+package edu.unc.cs.comp524.parsers.prolog;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.*;
+
+import edu.unc.cs.comp524.parsers.prolog.term.*;
+import edu.unc.cs.comp524.parsers.prolog.term.Float;
+
+public class TermTest {
+  private static final String source = String.join("\n"
+      , "t(foo, 'it\\'s', 'a\\nb', X, _, 42, -1, 0x1F, 0'a, 2.5, -2.5, - (1))."
+      , "t(f(X, g(Y)), [a, b|T], [c], [], \"str\", {a, b}, X - 1 * 2)."
+      , "r(X) :- X > 0, XN is X-1, r(XN)."
+      , "");
+
+  private static Program parse(TreeRetention retention) {
+    return Programs.parse(new ANTLRInputStream(source), retention);
+  }
+
+  private static Atom a(String name) {
+    return new Atom(name);
+  }
+
+  private static Compound c(String name, Term... args) {
+    return new Compound(name, List.of(args));
+  }
+
+  @Test
+  public void testTerms() {
+    var t = parse(TreeRetention.RETAIN).clauses().get("t");
+    var X = new Var("X");
+    assertThat(t.get(0).terms(), is(List.of(
+            a("foo"),
+            a("it's"),
+            a("a\nb"),
+            X,
+            new Var("_"),
+            new Int(42),
+            new Int(-1),
+            new Int(31),
+            new Int('a'),
+            new Float(2.5),
+            new Float(-2.5),
+            c("-", new Int(1)))));
+    assertThat(t.get(1).terms(), is(List.of(
+            c("f", X, c("g", new Var("Y"))),
+            new PList(List.of(a("a"), a("b")), new Var("T")),
+            new PList(List.of(a("c")), Atom.NIL),
+            Atom.NIL,
+            a("str"),
+            c("{}", a("a"), a("b")),
+            c("-", X, c("*", new Int(1), new Int(2))))));
+    assertThat(t.get(1).terms().get(1).toString(), is("[a, b|T]"));
+  }
+
+  @Test
+  public void testSameTermsWhenDetached() {
+    var retained = parse(TreeRetention.RETAIN);
+    for (var retention : List.of(
+          TreeRetention.DETACH,
+          TreeRetention.DETACH_LAZILY)) {
+      var detached = parse(retention);
+      for (var name : retained.names())
+        for (int i = 0; i < retained.clauses().get(name).size(); ++i) {
+          var expected = retained.clauses().get(name).get(i).terms();
+          var actual = detached.clauses().get(name).get(i).terms();
+          assertThat(actual, is(expected));
+          assertThat(actual.hashCode(), is(expected.hashCode()));
+        }
+
+      var rule = (Rule)detached.clauses().get("r").get(0);
+      var invocations = new HashSet<List<Term>>();
+      for (var invocation : rule.rhs())
+        invocations.add(invocation.terms());
+      assertTrue(invocations.contains(List.of(new Var("XN"))));
+      assertTrue(invocations.contains(
+            List.of(new Var("XN"), c("-", new Var("X"), new Int(1)))));
+    }
+  }
+
+  @Test
+  public void testInterning() {
+    var text = String.join("\n"
+        , "edge(a, b). edge(a, b). color(red, [1, 2])."
+        , "p(f(a), X, [1, 2|X]). q(f(a)) :- edge(a, b), color(red, [1, 2])."
+        , "");
+    for (var retention : TreeRetention.values()) {
+      var interner = new TermInterner();
+      var program =
+        Programs.parse(new ANTLRInputStream(text), retention, interner);
+      var uninterned = Programs.parse(new ANTLRInputStream(text), retention);
+      for (var name : program.names())
+        for (int i = 0; i < program.clauses().get(name).size(); ++i)
+          assertThat(
+              program.clauses().get(name).get(i).terms(),
+              is(uninterned.clauses().get(name).get(i).terms()));
+      // the arguments are as they were, kept or not
+      assertThat(program.toString(), is(uninterned.toString()));
+      assertSameArgs(program, uninterned);
+
+      var edges = program.clauses().get("edge");
+      assertThat(
+          edges.get(0).terms().get(0),
+          is(sameInstance(edges.get(1).terms().get(0))));
+      var p = program.clauses().get("p").get(0).terms();
+      var q = (Rule)program.clauses().get("q").get(0);
+      assertThat(q.terms().get(0), is(sameInstance(p.get(0))));
+      // the ground elements of a list with a variable tail
+      var list = (PList)p.get(2);
+      var color = program.clauses().get("color").get(0).terms();
+      assertThat(
+          list.elements().get(0),
+          is(sameInstance(((PList)color.get(1)).elements().get(0))));
+      for (var invocation : q.rhs())
+        if (invocation.name().equals("edge"))
+          assertThat(
+              invocation.terms().get(1),
+              is(sameInstance(edges.get(0).terms().get(1))));
+        else if (invocation.name().equals("color"))
+          assertThat(
+              invocation.terms().get(1),
+              is(sameInstance(color.get(1))));
+    }
+  }
+
+  @Test
+  public void testLoadInterning() {
+    var text = String.join("\n"
+        , "edge(a, b). edge(a, 'b'). edge(a, 0x1F)."
+        , "  reading(12, 3.4, \"y\")."
+        , "p(f(a)) :- edge(a, b)."
+        , "");
+    var interned = new ArrayList<Relation>();
+    Programs.load(
+        new ANTLRInputStream(text),
+        new TermInterner(),
+        interned::add);
+    var relations = new ArrayList<Relation>();
+    Programs.load(new ANTLRInputStream(text), relations::add);
+    for (int i = 0; i < relations.size(); ++i)
+      assertThat(interned.get(i).terms(), is(relations.get(i).terms()));
+    var loaded = new AProgram(interned);
+    var uninterned = new AProgram(relations);
+    assertThat(loaded.toString(), is(uninterned.toString()));
+    assertSameArgs(loaded, uninterned);
+
+    var edges = loaded.clauses().get("edge");
+    assertThat(
+        edges.get(0).terms().get(1),
+        is(sameInstance(edges.get(1).terms().get(1))));
+    var p = (Rule)loaded.clauses().get("p").get(0);
+    assertThat(
+        p.rhs().get(0).terms().get(0),
+        is(sameInstance(edges.get(0).terms().get(0))));
+  }
+
+  // the same text, token type and position for every argument
+  private static void assertSameArgs(Program program, Program expected) {
+    var actual = program.relations().iterator();
+    for (var e : (Iterable<Relation>)expected.relations()::iterator) {
+      var a = actual.next();
+      var args = new ArrayList<>(a.args());
+      var expectedArgs = new ArrayList<>(e.args());
+      if (a instanceof Rule)
+        for (int i = 0; i < ((Rule)a).rhs().size(); ++i) {
+          args.addAll(((Rule)a).rhs().get(i).args());
+          expectedArgs.addAll(((Rule)e).rhs().get(i).args());
+        }
+      assertThat(args.size(), is(expectedArgs.size()));
+      for (int i = 0; i < args.size(); ++i) {
+        var arg = args.get(i);
+        var expectedArg = expectedArgs.get(i);
+        assertThat(arg.getText(), is(expectedArg.getText()));
+        assertThat(start(arg).getLine(), is(start(expectedArg).getLine()));
+        assertThat(
+            start(arg).getCharPositionInLine(),
+            is(start(expectedArg).getCharPositionInLine()));
+        if (arg instanceof TerminalNode && expectedArg instanceof TerminalNode)
+          assertThat(start(arg).getType(), is(start(expectedArg).getType()));
+      }
+    }
+  }
+
+  private static Token start(ParseTree tree) {
+    return tree instanceof TerminalNode
+      ? ((TerminalNode)tree).getSymbol()
+      : ((ParserRuleContext)tree).getStart();
+  }
+}